@@ -0,0 +1,660 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Times the hot paths of the game over a fixed corpus of board positions and
+ * racks recorded from seeded hard-vs-hard self-play. The corpus is read from
+ * a file, so it stays the same on every run even when the computer players
+ * change, and the numbers can be compared between versions to catch
+ * slowdowns or to compare a new move generator against the current one.
+ * Each benchmark is warmed up before it is measured, and the mean and
+ * standard deviation of the time per operation are printed
+ * 
+ * java Benchmarks [benchmark name...]
+ * java Benchmarks -record (writes the corpus file again)
+ * 
+ */
+public class Benchmarks
+{
+	public static final String CORPUS_FILE = "positions.txt";
+
+	private static final long SEED = 2013;
+	private static final int CORPUS_GAMES = 10;
+	private static final int SELF_PLAY_GAMES = 20;
+	private static final int WARMUP_ROUNDS = 5;
+	private static final int MEASURED_ROUNDS = 10;
+
+	// Results are added here so the work being timed can't be skipped
+	private static volatile long sink;
+
+	private ArrayList<Position> positions;
+	private ArrayList<String> words;
+
+	/**
+	 * Loads the corpus of positions and the word list
+	 * 
+	 * @throws IOException if the corpus or the word list could not be read
+	 */
+	public Benchmarks() throws IOException
+	{
+		positions = new ArrayList<Position>();
+		BufferedReader reader = new BufferedReader(new FileReader(CORPUS_FILE));
+		try
+		{
+			String line = reader.readLine();
+			while (line != null)
+			{
+				if (line.length() > 0 && !line.startsWith("#"))
+					positions.add(new Position(line));
+				line = reader.readLine();
+			}
+		}
+		finally
+		{
+			reader.close();
+		}
+
+		// Check real words and the same words with a letter changed
+		words = new ArrayList<String>();
+		reader = new BufferedReader(new FileReader(Dictionary.WORD_LIST_FILE));
+		try
+		{
+			String nextWord = reader.readLine();
+			for (int line = 0; nextWord != null; line++)
+			{
+				if (line % 10 == 0)
+				{
+					words.add(nextWord);
+					words.add(nextWord.substring(1) + 'q');
+				}
+				nextWord = reader.readLine();
+			}
+		}
+		finally
+		{
+			reader.close();
+		}
+	}
+
+	/**
+	 * Plays seeded hard-vs-hard games and writes the board and the current
+	 * rack before every turn to the corpus file, one position to a line.
+	 * Each line has the rows of the board from the top separated by slashes,
+	 * with a dot for an empty square and a small letter for a blank, then a
+	 * space and the rack, with a question mark for a blank
+	 * 
+	 * @throws IOException if the corpus could not be written
+	 */
+	private static void recordCorpus() throws IOException
+	{
+		PrintWriter writer = new PrintWriter(new FileWriter(CORPUS_FILE));
+		try
+		{
+			writer.println("# " + CORPUS_GAMES + " hard-vs-hard games from "
+					+ "seed " + SEED + ", written by java Benchmarks -record");
+			for (int game = 0; game < CORPUS_GAMES; game++)
+			{
+				Pile deck = new Pile();
+				deck.shuffle(new Random(SEED + game));
+				HeadlessGame nextGame = new HeadlessGame(Player.HARD_COMPUTER,
+						Player.HARD_COMPUTER, deck);
+
+				while (!nextGame.isGameOver())
+				{
+					writer.println(describe(nextGame.getBoard(), nextGame
+							.getCurrentPlayer().getRack()));
+					nextGame.playTurn();
+				}
+			}
+		}
+		finally
+		{
+			writer.close();
+		}
+		if (writer.checkError())
+			throw new IOException("Could not write " + CORPUS_FILE);
+	}
+
+	/**
+	 * Writes a board and a rack as a line of the corpus file
+	 * 
+	 * @param board the board
+	 * @param rack the rack
+	 * @return the line for the position
+	 */
+	private static String describe(Board board, ArrayList<Tile> rack)
+	{
+		StringBuilder line = new StringBuilder();
+		for (int row = 0; row < board.NO_ROWS; row++)
+		{
+			if (row > 0)
+				line.append('/');
+			for (int col = 0; col < board.NO_COLS; col++)
+			{
+				Tile tile = board.getBoard()[row][col];
+				if (tile == null)
+					line.append('.');
+				else if (tile.isBlank())
+					line.append(Character.toLowerCase(tile.getChar()));
+				else
+					line.append(tile.getChar());
+			}
+		}
+
+		line.append(' ');
+		for (Tile tile : rack)
+			line.append(tile.isBlank() ? '?' : tile.getChar());
+		return line.toString();
+	}
+
+	/**
+	 * A board and a rack read from the corpus, with the best move for the
+	 * rack placed as turn tiles ready for the scoring benchmarks, and the
+	 * same rack with two of its tiles made blanks
+	 */
+	private static class Position
+	{
+		Board board;
+		ArrayList<Tile> rack;
+		ArrayList<Tile> blankRack;
+		Player player;
+		ArrayList<Tile> turnTiles;
+		char[] boardLetters;
+
+		public Position(String line)
+		{
+			board = new Board();
+			rack = new ArrayList<Tile>();
+			turnTiles = new ArrayList<Tile>();
+
+			// Place the tiles on the board and note each letter once
+			String[] parts = line.split(" ");
+			String[] rows = parts[0].split("/");
+			StringBuilder letters = new StringBuilder();
+			for (int row = 0; row < board.NO_ROWS; row++)
+				for (int col = 0; col < board.NO_COLS; col++)
+				{
+					char square = rows[row].charAt(col);
+					if (square != '.')
+					{
+						Tile tile = makeTile(square, row, col);
+						board.place(tile, row, col);
+						if (letters.indexOf("" + tile.getChar()) < 0)
+							letters.append(tile.getChar());
+					}
+				}
+			boardLetters = letters.toString().toCharArray();
+
+			// An empty rack has nothing after the space
+			if (parts.length > 1)
+				for (char letter : parts[1].toCharArray())
+					rack.add(makeTile(letter == '?' ? ' ' : letter, 0, 0));
+
+			blankRack = new ArrayList<Tile>();
+			for (Tile tile : rack)
+			{
+				if (blankRack.size() < 2)
+					blankRack.add(new Tile(' '));
+				else
+					blankRack.add(tile);
+			}
+
+			// Only the player's choice between moves is timed, so it doesn't
+			// need the hard player's leave values or endgame search
+			player = new Player(board, rack, Player.EASY_COMPUTER,
+					board.getWordsOnBoard(), new ArrayList<Tile>(), 1);
+
+			// Find the tiles of the best move for the scoring benchmarks
+			Move best = player.makeHardMove(new MoveGenerator(board)
+					.generate(rack));
+			if (best != null)
+			{
+				for (int i = 0; i < best.length(); i++)
+				{
+					if (best.isNewTile(i))
+					{
+						Tile tile = new Tile(best.getLetter(i));
+						if (best.isBlank(i))
+						{
+							tile = new Tile(' ');
+							tile.set(best.getLetter(i));
+						}
+						tile.setPos(best.getRow(i), best.getCol(i));
+						turnTiles.add(tile);
+					}
+				}
+			}
+		}
+
+		/**
+		 * Makes a tile from its letter in the corpus, a small letter for a
+		 * blank set to that letter or a space for a blank not set yet
+		 */
+		private static Tile makeTile(char letter, int row, int col)
+		{
+			Tile newTile;
+			if (letter == ' ' || Character.isLowerCase(letter))
+			{
+				newTile = new Tile(' ');
+				if (letter != ' ')
+					newTile.set(Character.toUpperCase(letter));
+			}
+			else
+				newTile = new Tile(letter);
+
+			newTile.setPos(row, col);
+
+			// Tiles are told apart by their location on the screen
+			newTile.setLocation(col * Tile.WIDTH, row * Tile.HEIGHT);
+			return newTile;
+		}
+
+		/**
+		 * Puts the turn tiles on the board
+		 */
+		void placeTurnTiles()
+		{
+			for (Tile tile : turnTiles)
+				board.place(tile, tile.getRow(), tile.getCol());
+		}
+
+		/**
+		 * Takes the turn tiles back off the board
+		 */
+		void removeTurnTiles()
+		{
+			board.remove(turnTiles);
+		}
+	}
+
+	/**
+	 * A piece of work to time
+	 */
+	private abstract static class Benchmark
+	{
+		String name;
+
+		public Benchmark(String name)
+		{
+			this.name = name;
+		}
+
+		/**
+		 * Does one round of the work
+		 * 
+		 * @return the number of operations done
+		 */
+		abstract long run();
+	}
+
+	/**
+	 * Returns every benchmark in the suite
+	 * 
+	 * @return the list of benchmarks
+	 */
+	private ArrayList<Benchmark> createBenchmarks()
+	{
+		ArrayList<Benchmark> benchmarks = new ArrayList<Benchmark>();
+
+		benchmarks.add(new Benchmark("getMoves")
+		{
+			long run()
+			{
+				long ops = 0;
+				for (Position position : positions)
+				{
+					for (char letter : position.boardLetters)
+					{
+						sink += getMoves(position.rack,
+								position.board.dictionary.getWordGraph(),
+								letter).size();
+						ops++;
+					}
+				}
+				return ops;
+			}
+		});
+
+		benchmarks.add(new Benchmark("makeHardMove")
+		{
+			long run()
+			{
+				for (Position position : positions)
+				{
+					Move best = position.player.makeHardMove(new MoveGenerator(
+							position.board).generate(position.rack));
+					if (best != null)
+						sink += best.getScore();
+				}
+				return positions.size();
+			}
+		});
+
+		benchmarks.add(new Benchmark("cachedMoves")
+		{
+			// Big enough to hold every position, so after the first round
+			// every position is found in the cache
+			MoveCache cache = new MoveCache(positions.size());
+
+			long run()
+			{
+				for (Position position : positions)
+				{
+					MoveGenerator generator = new MoveGenerator(position.board);
+					generator.setCache(cache);
+					sink += generator.generate(position.rack).size();
+				}
+				return positions.size();
+			}
+		});
+
+		benchmarks.add(new Benchmark("findBestMove")
+		{
+			ForkJoinPool pool = new ForkJoinPool();
+
+			long run()
+			{
+				for (Position position : positions)
+				{
+					Move best = new MoveGenerator(position.board)
+							.findBestMove(position.rack, pool);
+					if (best != null)
+						sink += best.getScore();
+				}
+				return positions.size();
+			}
+		});
+
+		benchmarks.add(new Benchmark("twoBlanks")
+		{
+			ForkJoinPool pool = new ForkJoinPool();
+
+			long run()
+			{
+				for (Position position : positions)
+				{
+					Move best = new MoveGenerator(position.board)
+							.findBestMove(position.blankRack, pool);
+					if (best != null)
+						sink += best.getScore();
+				}
+				return positions.size();
+			}
+		});
+
+		benchmarks.add(new Benchmark("isAligned")
+		{
+			long run()
+			{
+				long ops = 0;
+				for (Position position : positions)
+				{
+					if (position.turnTiles.isEmpty())
+						continue;
+					position.placeTurnTiles();
+					for (int i = 0; i < 100; i++)
+						sink += position.board.isAligned(position.turnTiles)
+								.length();
+					position.removeTurnTiles();
+					ops += 100;
+				}
+				return ops;
+			}
+		});
+
+		benchmarks.add(new Benchmark("getTotalScore")
+		{
+			long run()
+			{
+				long ops = 0;
+				for (Position position : positions)
+				{
+					if (position.turnTiles.isEmpty())
+						continue;
+					position.placeTurnTiles();
+					Word word = position.board.isAligned(position.turnTiles);
+					for (int i = 0; i < 100; i++)
+						sink += position.board.getTotalScore(word,
+								position.turnTiles);
+					position.removeTurnTiles();
+					ops += 100;
+				}
+				return ops;
+			}
+		});
+
+		benchmarks.add(new Benchmark("loadDictionary")
+		{
+			long run()
+			{
+				try
+				{
+					sink += WordGraph.load(Dictionary.GRAPH_FILE).size();
+				}
+				catch (IOException e)
+				{
+					throw new RuntimeException(e);
+				}
+				return 1;
+			}
+		});
+
+		benchmarks.add(new Benchmark("buildDictionary")
+		{
+			long run()
+			{
+				try
+				{
+					sink += WordGraph.fromWordList(Dictionary.WORD_LIST_FILE)
+							.size();
+				}
+				catch (IOException e)
+				{
+					throw new RuntimeException(e);
+				}
+				return 1;
+			}
+		});
+
+		benchmarks.add(new Benchmark("isWord")
+		{
+			long run()
+			{
+				Dictionary dictionary = Dictionary.getInstance();
+				for (String word : words)
+				{
+					if (dictionary.isWord(word))
+						sink++;
+				}
+				return words.size();
+			}
+		});
+
+		benchmarks.add(new Benchmark("selfPlay")
+		{
+			// The same seeded easy-vs-hard games every run, so a change that
+			// slows self-play down, such as a search left on by default,
+			// shows up as a longer time per game. Thousands of games per
+			// minute is under 60 ms a game
+			long run()
+			{
+				for (int game = 0; game < SELF_PLAY_GAMES; game++)
+				{
+					Pile deck = new Pile();
+					deck.shuffle(new Random(SEED + game));
+					HeadlessGame nextGame = new HeadlessGame(
+							Player.EASY_COMPUTER, Player.HARD_COMPUTER, deck);
+					nextGame.play();
+					sink += nextGame.getNoOfMoves();
+				}
+				return SELF_PLAY_GAMES;
+			}
+		});
+
+		benchmarks.add(new Benchmark("shuffle")
+		{
+			long run()
+			{
+				Pile deck = new Pile();
+				Random random = new Random(SEED);
+				for (int i = 0; i < 1000; i++)
+				{
+					deck.recall();
+					deck.shuffle(random);
+				}
+				sink += deck.deal().getChar();
+				return 1000;
+			}
+		});
+
+		return benchmarks;
+	}
+
+	/**
+	 * Finds all of the words that can be made with a rack and a given
+	 * character, ignoring the board. Blanks stand for any letter. This was
+	 * the computer's first word finder and is kept only as a baseline for
+	 * the move generator
+	 * 
+	 * @param rack the tiles on the rack
+	 * @param graph the word graph
+	 * @param letter the given character (a space to use only the rack)
+	 * @return all of the possible words with the rack and a given character
+	 */
+	private static ArrayList<String> getMoves(ArrayList<Tile> rack,
+			WordGraph graph, char letter)
+	{
+		// Count the letters available, with the blanks after Z
+		int[] letterCounts = new int[27];
+		for (Tile tile : rack)
+		{
+			if (tile.isBlank())
+				letterCounts[26]++;
+			else
+				letterCounts[tile.getChar() - 'A']++;
+		}
+
+		boolean useLetter = (letter != ' ');
+		if (useLetter)
+			letterCounts[letter - 'A']++;
+
+		// Walk the word graph using only the letters we have
+		ArrayList<String> validWords = new ArrayList<String>();
+		int required = useLetter ? letter - 'A' : -1;
+		findWords(graph, WordGraph.ROOT, letterCounts,
+				new char[rack.size() + 1], 0, required,
+				useLetter ? letterCounts[required] : 0, validWords);
+
+		return validWords;
+	}
+
+	/**
+	 * Adds every word that can be spelled from a node of the word graph with
+	 * the given letters. A blank is only used for a letter that has run out,
+	 * so each word is found once
+	 * 
+	 * @param graph the word graph
+	 * @param node the node reached so far
+	 * @param letterCounts the number of each letter left to use, followed by
+	 *            the number of blanks
+	 * @param word the letters chosen so far
+	 * @param length the number of letters chosen so far
+	 * @param required the letter that must be used (-1 if none)
+	 * @param requiredCount the number of the required letter available
+	 * @param validWords the list to add words to
+	 */
+	private static void findWords(WordGraph graph, int node, int[] letterCounts,
+			char[] word, int length, int required, int requiredCount,
+			ArrayList<String> validWords)
+	{
+		// A word must use at least one of the required letter
+		if (length > 1 && graph.isTerminal(node)
+				&& (required < 0 || letterCounts[required] < requiredCount))
+			validWords.add(new String(word, 0, length));
+
+		int edges = graph.getEdges(node);
+		while (edges != 0)
+		{
+			int letter = Integer.numberOfTrailingZeros(edges);
+			edges &= edges - 1;
+
+			int tileType = letter;
+			if (letterCounts[letter] == 0)
+				tileType = 26;
+			if (letterCounts[tileType] > 0)
+			{
+				letterCounts[tileType]--;
+				word[length] = (char) ('A' + letter);
+				findWords(graph, graph.getChild(node, letter), letterCounts,
+						word, length + 1, required, requiredCount, validWords);
+				letterCounts[tileType]++;
+			}
+		}
+	}
+
+	/**
+	 * Warms up and measures a benchmark and prints the time per operation
+	 * 
+	 * @param benchmark the benchmark to run
+	 */
+	private static void measure(Benchmark benchmark)
+	{
+		for (int round = 0; round < WARMUP_ROUNDS; round++)
+			benchmark.run();
+
+		double[] times = new double[MEASURED_ROUNDS];
+		double total = 0;
+		for (int round = 0; round < MEASURED_ROUNDS; round++)
+		{
+			long startTime = System.nanoTime();
+			long ops = benchmark.run();
+			times[round] = (double) (System.nanoTime() - startTime) / ops;
+			total += times[round];
+		}
+
+		double mean = total / MEASURED_ROUNDS;
+		double squares = 0;
+		for (double time : times)
+			squares += (time - mean) * (time - mean);
+		double deviation = Math.sqrt(squares / MEASURED_ROUNDS);
+
+		System.out.printf("%-16s %14.1f ns/op  +- %.1f%n", benchmark.name,
+				mean, deviation);
+	}
+
+	/**
+	 * Runs the benchmarks named on the command line, or all of them, or
+	 * writes the corpus file again
+	 * 
+	 * @param args the names of the benchmarks to run (optional), or -record
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		if (args.length == 1 && args[0].equals("-record"))
+		{
+			recordCorpus();
+			return;
+		}
+
+		Benchmarks suite = new Benchmarks();
+		System.out.println("Corpus: " + suite.positions.size()
+				+ " positions from " + CORPUS_FILE);
+
+		for (Benchmark benchmark : suite.createBenchmarks())
+		{
+			boolean selected = (args.length == 0);
+			for (String name : args)
+				if (name.equals(benchmark.name))
+					selected = true;
+
+			if (selected)
+				measure(benchmark);
+		}
+	}
+}
@@ -33,10 +33,47 @@ public class Board
 	private final static int TRIPLE_LETTER = 3;
 	private final static int TRIPLE_WORD = 4;
 
+	// The letter and word multipliers of each square (row * 15 + column),
+	// taken from BOARDMAP
+	private final static byte[] LETTER_MULTIPLIERS = new byte[15 * 15];
+	private final static byte[] WORD_MULTIPLIERS = new byte[15 * 15];
+
+	static
+	{
+		for (int row = 0; row < 15; row++)
+			for (int column = 0; column < 15; column++)
+			{
+				int square = row * 15 + column;
+				LETTER_MULTIPLIERS[square] = 1;
+				WORD_MULTIPLIERS[square] = 1;
+				if (BOARDMAP[row][column] == DOUBLE_LETTER)
+					LETTER_MULTIPLIERS[square] = 2;
+				else if (BOARDMAP[row][column] == TRIPLE_LETTER)
+					LETTER_MULTIPLIERS[square] = 3;
+				else if (BOARDMAP[row][column] == DOUBLE_WORD)
+					WORD_MULTIPLIERS[square] = 2;
+				else if (BOARDMAP[row][column] == TRIPLE_WORD)
+					WORD_MULTIPLIERS[square] = 3;
+			}
+	}
+
+	// A square of the grid holds 0 if it's empty, otherwise the letter on it
+	// (1 for A to 26 for Z) plus BLANK_TILE if the tile is a blank
+	private final static int BLANK_TILE = 32;
+	private final static int LETTER_MASK = BLANK_TILE - 1;
+
 	public final int NO_COLS = 15;
 	public final int NO_ROWS = 15;
 	private Tile[][] board;
-	public Dictionary dictionary;
+	public final Dictionary dictionary;
+
+	// The letters on the board, used for scoring and finding moves. The
+	// tiles in the board array are only kept for the screen
+	private byte[] squares;
+	private int noOfTiles;
+
+	// The Zobrist hash of the letters on the board
+	private long hash;
 
 	private Player playerOne;
 	private Player playerTwo;
@@ -47,6 +84,18 @@ public class Board
 	private final static char BLANK = ' ';
 	private final static int VERTICAL_WORD = 1;
 	private final static int HORIZONTAL_WORD = 2;
+	private final static int ALL_LETTERS = (1 << 26) - 1;
+
+	// For each square, the letters that form words with the tiles above and
+	// below it (across) or left and right of it (down), and the face value of
+	// those tiles (-1 if there are no tiles next to the square)
+	private int[] acrossChecks;
+	private int[] downChecks;
+	private int[] acrossScores;
+	private int[] downScores;
+
+	// The letters around a square whose cross-check is being found
+	private char[] run;
 
 	/**
 	 * Constructs a Board object keeping track of the tiles played and their
@@ -55,9 +104,18 @@ public class Board
 	public Board()
 	{
 		board = new Tile[NO_ROWS][NO_COLS];
-		dictionary = new Dictionary();
+		dictionary = Dictionary.getInstance();
 		wordsOnBoard = new ArrayList<Word>();
 		tilesOnBoard = new ArrayList<Tile>();
+
+		squares = new byte[NO_ROWS * NO_COLS];
+
+		acrossChecks = new int[NO_ROWS * NO_COLS];
+		downChecks = new int[NO_ROWS * NO_COLS];
+		acrossScores = new int[NO_ROWS * NO_COLS];
+		downScores = new int[NO_ROWS * NO_COLS];
+		run = new char[NO_ROWS];
+		resetCrossChecks();
 	}
 
 	/**
@@ -71,6 +129,120 @@ public class Board
 		return board;
 	}
 
+	/**
+	 * Returns the letter on a square
+	 * 
+	 * @param row the row of the square
+	 * @param column the column of the square
+	 * @return the letter in upper case, 0 if the square is empty
+	 */
+	public char getLetter(int row, int column)
+	{
+		int letter = squares[row * NO_COLS + column] & LETTER_MASK;
+		if (letter == 0)
+			return 0;
+		return (char) ('A' + letter - 1);
+	}
+
+	/**
+	 * Returns the face value of the tile on a square
+	 * 
+	 * @param row the row of the square
+	 * @param column the column of the square
+	 * @return the face value of the tile, 0 if the square is empty or the
+	 *         tile is a blank
+	 */
+	public int getTileScore(int row, int column)
+	{
+		int square = squares[row * NO_COLS + column];
+		if (square == 0 || (square & BLANK_TILE) != 0)
+			return 0;
+		return Tile.LETTER_VALUES[(square & LETTER_MASK) - 1];
+	}
+
+	/**
+	 * Checks if a square has no tile on it
+	 * 
+	 * @param row the row of the square
+	 * @param column the column of the square
+	 * @return true if the square is empty, false if not
+	 */
+	public boolean isEmpty(int row, int column)
+	{
+		return squares[row * NO_COLS + column] == 0;
+	}
+
+	/**
+	 * Returns the number of tiles on the board
+	 * 
+	 * @return the number of tiles
+	 */
+	public int getNoOfTiles()
+	{
+		return noOfTiles;
+	}
+
+	/**
+	 * Counts the tiles a player can't see: a full deck less the tiles on the
+	 * board and on the player's own rack. These are the tiles in the pile and
+	 * on the other player's rack
+	 * 
+	 * @param rack the tiles on the player's rack
+	 * @return the number of each letter A to Z, followed by the number of
+	 *         blanks
+	 */
+	public int[] countUnseen(ArrayList<Tile> rack)
+	{
+		int[] unseen = Pile.getDistribution();
+		int blank = unseen.length - 1;
+		for (int square = 0; square < squares.length; square++)
+		{
+			if (squares[square] == 0)
+				continue;
+			if ((squares[square] & BLANK_TILE) != 0)
+				unseen[blank]--;
+			else
+				unseen[(squares[square] & LETTER_MASK) - 1]--;
+		}
+
+		for (Tile tile : rack)
+		{
+			if (tile.isBlank())
+				unseen[blank]--;
+			else
+				unseen[tile.getChar() - 'A']--;
+		}
+
+		// Never count below none, in case the rack and board disagree
+		for (int type = 0; type < unseen.length; type++)
+			unseen[type] = Math.max(unseen[type], 0);
+		return unseen;
+	}
+
+	/**
+	 * Returns the Zobrist hash of the letters on the board. Boards with the
+	 * same letters and blanks in the same places have the same hash
+	 * 
+	 * @return the hash of the board, 0 for an empty board
+	 */
+	public long getHash()
+	{
+		return hash;
+	}
+
+	/**
+	 * Adds the letter on a square to the hash or takes it out again
+	 * 
+	 * @param square the index of the square
+	 */
+	private void toggleHash(int square)
+	{
+		int value = squares[square];
+		if (value != 0)
+			hash ^= Zobrist.squareKey(square, (value & LETTER_MASK) - 1,
+					(value & BLANK_TILE) != 0);
+	}
+
 	/**
 	 * Return the score of the tile at the given index based off its face value
 	 * and special squares on the board that may double or triple the value of
@@ -82,16 +254,34 @@ public class Board
 	 */
 	public int getCharScore(int row, int column)
 	{
-		// Get the face value tile score
-		int score = board[row][column].getScore();
+		// Get the face value tile score and factor in multipliers
+		return getTileScore(row, column) * getLetterMultiplier(row, column);
+	}
 
-		// Factor in multipliers
-		if (BOARDMAP[row][column] == DOUBLE_LETTER)
-			score *= 2;
-		else if (BOARDMAP[row][column] == TRIPLE_LETTER)
-			score *= 3;
+	/**
+	 * Returns the letter multiplier of a square on the board
+	 * 
+	 * @param row the row of the square
+	 * @param column the column of the square
+	 * @return 2 for a double letter square, 3 for a triple letter square, 1
+	 *         otherwise
+	 */
+	public int getLetterMultiplier(int row, int column)
+	{
+		return LETTER_MULTIPLIERS[row * NO_COLS + column];
+	}
 
-		return score;
+	/**
+	 * Returns the word multiplier of a square on the board
+	 * 
+	 * @param row the row of the square
+	 * @param column the column of the square
+	 * @return 2 for a double word square, 3 for a triple word square, 1
+	 *         otherwise
+	 */
+	public int getWordMultiplier(int row, int column)
+	{
+		return WORD_MULTIPLIERS[row * NO_COLS + column];
 	}
 
 	/**
@@ -117,7 +307,7 @@ public class Board
 
 		// Check whether the word can be added to the board, then check for
 		// whether the word is vertical or horizontal
-		if (dictionary.isWord(word.toString()))
+		if (dictionary.isWord(word))
 		{
 			if (type == VERTICAL_WORD)
 			{
@@ -133,14 +323,7 @@ public class Board
 
 						// Keep track of the multipliers being applied to the
 						// word
-						if (BOARDMAP[row + i][column] == DOUBLE_WORD)
-						{
-							multiplicator *= 2;
-						}
-						else if (BOARDMAP[row + i][column] == TRIPLE_WORD)
-						{
-							multiplicator *= 3;
-						}
+						multiplicator *= getWordMultiplier(row + i, column);
 					}
 					// If the tile was already played previously, simply add its
 					// face value
@@ -169,16 +352,7 @@ public class Board
 
 						// Keep track of the multipliers being applied to the
 						// word
-						if (BOARDMAP[row][column + i] == DOUBLE_WORD)
-						{
-							multiplicator *= 2;
-
-						}
-						if (BOARDMAP[row][column + i] == TRIPLE_WORD)
-						{
-							multiplicator *= 3;
-
-						}
+						multiplicator *= getWordMultiplier(row, column + i);
 					}
 
 					// If the tile was not played this turn, get its normal
@@ -333,132 +507,291 @@ public class Board
 	 * @param turnTiles the tiles being played this turn to check words being
 	 *            formed off them
 	 * @return the total score of the surrounding words (if at least one is not
-	 *         in the dictionary, return 0)
+	 *         in the dictionary, return -1)
 	 */
 
 	public int checkSurroundingWords(Word word, ArrayList<Tile> turnTiles)
 	{
 		int type = word.getType();
-		int row = word.getFirstRow();
-		int column = word.getFirstCol();
-
-		// Keeps track of the score for the current surrounding word
-		int directionScore = 0;
 
 		// Keeps track of the total surrounding word score
 		int totalScore = 0;
 
-		if (type == HORIZONTAL_WORD)
+		// For each tile played this turn, look up the word formed across it
+		for (Tile next : turnTiles)
 		{
-			// For each tile in the current word that were played this turn,
-			// check for vertical words connecting to it
-			for (Tile next : turnTiles)
-			{
-				int currentCol = next.getCol();
-				int rowCheck = row;
-				directionScore = 0;
-
-				// Find the first letter of the vertical word and build the
-				// whole word
-				while (rowIsValid(rowCheck - 1)
-						&& board[rowCheck - 1][currentCol] != null)
-				{
-					rowCheck--;
-				}
-				Word verticalWord = buildWord(rowCheck, currentCol,
-						VERTICAL_WORD);
+			int tileRow = next.getRow();
+			int tileCol = next.getCol();
+			int crossScore = getCrossScore(tileRow, tileCol, type);
+
+			// If there are no tiles beside it, there is no surrounding word
+			if (crossScore < 0)
+				continue;
+
+			// If the letter does not make a word with the tiles beside it,
+			// return -1
+			int letter = letterIndex(next.getChar());
+			if (letter < 0
+					|| (getCrossCheck(tileRow, tileCol, type) & (1 << letter)) == 0)
+				return -1;
+
+			// Otherwise add the score of the word, applying the special square
+			// under the tile played this turn
+			int letterScore = next.getScore()
+					* getLetterMultiplier(tileRow, tileCol);
+			totalScore += (crossScore + letterScore)
+					* getWordMultiplier(tileRow, tileCol);
+		}
 
-				// If there is a vertical word, check the entire word to see
-				// if it's in the dictionary
-				if (verticalWord.length() > 1)
-				{
-					// If not, return -1
-					if (!dictionary.isWord(verticalWord.toString()))
-						return -1;
+		// After all the words have been checked
+		return totalScore;
+	}
 
-					// Otherwise find the score of this word
-					else
-					{
-						directionScore = getScoreWithoutMultipliers(verticalWord);
-
-						// If this turn tile is in a special square, apply to
-						// the total score of the word
-						int tileRow = next.getRow();
-						int tileCol = next.getCol();
-
-						if (BOARDMAP[tileRow][tileCol] == DOUBLE_LETTER)
-							directionScore += next.getScore();
-						else if (BOARDMAP[tileRow][tileCol] == DOUBLE_WORD)
-							directionScore *= 2;
-						else if (BOARDMAP[tileRow][tileCol] == TRIPLE_LETTER)
-							directionScore += 2 * next.getScore();
-						else if (BOARDMAP[tileRow][tileCol] == TRIPLE_WORD)
-							directionScore *= 3;
-					}
-				}
+	/**
+	 * Returns the letters that can be played on a square in a given direction
+	 * so that they form words with the tiles beside the square
+	 * 
+	 * @param row the row of the square
+	 * @param column the column of the square
+	 * @param type the alignment of the word being played on the square
+	 * @return a bit mask of the letters allowed (bit 0 for A to bit 25 for Z)
+	 */
+	public int getCrossCheck(int row, int column, int type)
+	{
+		if (type == HORIZONTAL_WORD)
+			return acrossChecks[row * NO_COLS + column];
+		return downChecks[row * NO_COLS + column];
+	}
 
-				// Add to the total surrounding words score
-				totalScore += directionScore;
-			}
+	/**
+	 * Returns the face value of the tiles that form a word across a square
+	 * with a tile played on it in a given direction
+	 * 
+	 * @param row the row of the square
+	 * @param column the column of the square
+	 * @param type the alignment of the word being played on the square
+	 * @return the face value of the tiles beside the square, -1 if there are
+	 *         none
+	 */
+	public int getCrossScore(int row, int column, int type)
+	{
+		if (type == HORIZONTAL_WORD)
+			return acrossScores[row * NO_COLS + column];
+		return downScores[row * NO_COLS + column];
+	}
+
+	/**
+	 * Places a tile on the board and updates the cross-checks of the squares
+	 * around it
+	 * 
+	 * @param tile the tile to place
+	 * @param row the row to place the tile in
+	 * @param column the column to place the tile in
+	 */
+	public void place(Tile tile, int row, int column)
+	{
+		int square = row * NO_COLS + column;
+		if (squares[square] == 0)
+			noOfTiles++;
+		else
+			toggleHash(square);
+
+		board[row][column] = tile;
+		squares[square] = (byte) (letterIndex(tile.getChar()) + 1);
+		if (tile.isBlank())
+			squares[square] |= BLANK_TILE;
+		toggleHash(square);
+		updateCrossChecks(row, column);
+	}
+
+	/**
+	 * Removes the tile at a given square and updates the cross-checks of the
+	 * squares around it
+	 * 
+	 * @param row the row of the tile
+	 * @param column the column of the tile
+	 */
+	public void remove(int row, int column)
+	{
+		if (squares[row * NO_COLS + column] != 0)
+		{
+			board[row][column] = null;
+			toggleHash(row * NO_COLS + column);
+			squares[row * NO_COLS + column] = 0;
+			noOfTiles--;
+			updateCrossChecks(row, column);
 		}
+	}
 
-		// If the word is vertical
-		if (type == VERTICAL_WORD)
+	/**
+	 * Recomputes the cross-checks affected by a square changing: the square
+	 * itself and the rows of tiles on each side of it up to and including the
+	 * next empty square
+	 * 
+	 * @param row the row of the square that changed
+	 * @param column the column of the square that changed
+	 */
+	private void updateCrossChecks(int row, int column)
+	{
+		// Across checks depend on the tiles above and below
+		computeCrossCheck(row, column, HORIZONTAL_WORD);
+		for (int r = row - 1; rowIsValid(r); r--)
 		{
-			// For each tile in the current word that were played this turn,
-			// check for horizontal words connecting to it
-			for (Tile next : turnTiles)
-			{
-				int currentRow = next.getRow();
-				int colCheck = column;
-				directionScore = 0;
-
-				// Find the first letter of the horizontal word and build the
-				// word
-				while (colIsValid(colCheck - 1)
-						&& board[currentRow][colCheck - 1] != null)
-				{
-					colCheck--;
-				}
+			computeCrossCheck(r, column, HORIZONTAL_WORD);
+			if (isEmpty(r, column))
+				break;
+		}
+		for (int r = row + 1; rowIsValid(r); r++)
+		{
+			computeCrossCheck(r, column, HORIZONTAL_WORD);
+			if (isEmpty(r, column))
+				break;
+		}
 
-				Word horizontalWord = buildWord(currentRow, colCheck,
-						HORIZONTAL_WORD);
+		// Down checks depend on the tiles to the left and right
+		computeCrossCheck(row, column, VERTICAL_WORD);
+		for (int c = column - 1; colIsValid(c); c--)
+		{
+			computeCrossCheck(row, c, VERTICAL_WORD);
+			if (isEmpty(row, c))
+				break;
+		}
+		for (int c = column + 1; colIsValid(c); c++)
+		{
+			computeCrossCheck(row, c, VERTICAL_WORD);
+			if (isEmpty(row, c))
+				break;
+		}
+	}
 
-				// If there's a horizontal word and it's not in the
-				// dictionary, return -1
-				if (horizontalWord.length() > 1)
-				{
-					if (!dictionary.isWord(horizontalWord.toString()))
-						return -1;
+	/**
+	 * Finds the letters that would form a word with the tiles beside a square
+	 * if a tile were played on it in a given direction, ignoring any tile
+	 * already on the square
+	 * 
+	 * @param row the row of the square
+	 * @param column the column of the square
+	 * @param type the alignment of the word being played on the square
+	 */
+	private void computeCrossCheck(int row, int column, int type)
+	{
+		int[] checks = (type == HORIZONTAL_WORD) ? acrossChecks : downChecks;
+		int[] scores = (type == HORIZONTAL_WORD) ? acrossScores : downScores;
+		int square = row * NO_COLS + column;
+
+		// The surrounding word runs across the word being played
+		int rowStep = (type == HORIZONTAL_WORD) ? 1 : 0;
+		int colStep = 1 - rowStep;
+
+		// Find the first tile of the surrounding word
+		int startRow = row;
+		int startCol = column;
+		while (rowIsValid(startRow - rowStep) && colIsValid(startCol - colStep)
+				&& !isEmpty(startRow - rowStep, startCol - colStep))
+		{
+			startRow -= rowStep;
+			startCol -= colStep;
+		}
 
-					// Otherwise find the score of this word
-					else
-					{
-						directionScore = getScoreWithoutMultipliers(horizontalWord);
+		boolean hasAfter = rowIsValid(row + rowStep)
+				&& colIsValid(column + colStep)
+				&& !isEmpty(row + rowStep, column + colStep);
 
-						// If the turn tile is in a special square, apply to the
-						// word
-						int tileRow = next.getRow();
-						int tileCol = next.getCol();
-
-						if (BOARDMAP[tileRow][tileCol] == DOUBLE_LETTER)
-							directionScore += next.getScore();
-						else if (BOARDMAP[tileRow][tileCol] == DOUBLE_WORD)
-							directionScore *= 2;
-						else if (BOARDMAP[tileRow][tileCol] == TRIPLE_LETTER)
-							directionScore += 2 * next.getScore();
-						else if (BOARDMAP[tileRow][tileCol] == TRIPLE_WORD)
-							directionScore *= 3;
-					}
-				}
+		// If there are no tiles on either side, any letter can go here
+		if (startRow == row && startCol == column && !hasAfter)
+		{
+			checks[square] = ALL_LETTERS;
+			scores[square] = -1;
+			return;
+		}
 
-				// Add to the total surrounding words score
-				totalScore += directionScore;
+		// Copy the tiles on each side of the square into a run of letters
+		// with a gap for the square
+		int length = 0;
+		int gap = 0;
+		int score = 0;
+		for (int r = startRow, c = startCol; rowIsValid(r)
+				&& colIsValid(c); r += rowStep, c += colStep)
+		{
+			if (r == row && c == column)
+				gap = length;
+			else if (isEmpty(r, c))
+				break;
+			else
+			{
+				run[length] = getLetter(r, c);
+				score += getTileScore(r, c);
 			}
+			length++;
 		}
 
-		// After all the words have been checked
-		return totalScore;
+		scores[square] = score;
+		checks[square] = findCrossCheck(dictionary.getWordGraph(), run, gap,
+				length);
+	}
+
+	/**
+	 * Finds the letters that can fill the gap in a run of letters so that the
+	 * whole run spells a word
+	 * 
+	 * @param graph the word graph of the dictionary
+	 * @param letters the letters of the run, in upper or lower case
+	 * @param gap the index of the gap in the run
+	 * @param length the length of the run including the gap
+	 * @return a bit mask of the letters that complete a word (bit 0 for A to
+	 *         bit 25 for Z)
+	 */
+	static int findCrossCheck(WordGraph graph, char[] letters, int gap,
+			int length)
+	{
+		// Follow the letters before the gap through the word graph
+		int node = graph.follow(WordGraph.ROOT, letters, 0, gap);
+		if (node == WordGraph.NONE)
+			return 0;
+
+		// Try each letter that can follow them and check that the letters
+		// after the gap complete a word
+		int check = 0;
+		int edges = graph.getEdges(node);
+		while (edges != 0)
+		{
+			int letter = Integer.numberOfTrailingZeros(edges);
+			edges &= edges - 1;
+
+			int next = graph.follow(graph.getChild(node, letter), letters,
+					gap + 1, length - gap - 1);
+			if (next != WordGraph.NONE && graph.isTerminal(next))
+				check |= 1 << letter;
+		}
+		return check;
+	}
+
+	/**
+	 * Returns the index of a letter in the alphabet
+	 * 
+	 * @param letter the letter in upper or lower case
+	 * @return 0 for A to 25 for Z, -1 if it's not a letter
+	 */
+	private int letterIndex(char letter)
+	{
+		int index = Character.toUpperCase(letter) - 'A';
+		if (index < 0 || index >= 26)
+			return -1;
+		return index;
+	}
+
+	/**
+	 * Resets the cross-checks of every square to allow any letter
+	 */
+	private void resetCrossChecks()
+	{
+		for (int square = 0; square < NO_ROWS * NO_COLS; square++)
+		{
+			acrossChecks[square] = ALL_LETTERS;
+			downChecks[square] = ALL_LETTERS;
+			acrossScores[square] = -1;
+			downScores[square] = -1;
+		}
 	}
 
 	/**
@@ -469,6 +802,12 @@ public class Board
 		for (int i = 0; i < NO_ROWS; i++)
 			for (int j = 0; j < NO_COLS; j++)
 				board[i][j] = null;
+		for (int square = 0; square < NO_ROWS * NO_COLS; square++)
+			squares[square] = 0;
+		noOfTiles = 0;
+		hash = 0;
+
+		resetCrossChecks();
 	}
 
 	/**
@@ -699,7 +1038,7 @@ public class Board
 	{
 		for (Tile tile : tileList)
 		{
-			board[tile.getRow()][tile.getCol()] = null;
+			remove(tile.getRow(), tile.getCol());
 		}
 
 	}
@@ -0,0 +1,476 @@
+/**
+ * A scratch layer over a Board that letters can be placed on without
+ * touching the board itself. Reads see the board with the placed letters on
+ * top, and the cross-checks of the squares next to placed letters are worked
+ * out again for the overlay. Moves can be scored against the overlay and the
+ * MoveGenerator can search it, so a move and the replies to it can be tried
+ * out while the real board, racks and played tiles stay as they are. Clearing
+ * the overlay takes constant time.
+ * 
+ * An overlay only reads from its board, so each thread can have its own
+ * overlay over a shared board as long as the board is not changed while they
+ * are in use
+ * 
+ */
+public class BoardOverlay
+{
+	private static final int SIZE = 15;
+	private static final int CENTRE = 7;
+	private static final int BINGO_BONUS = 50;
+	private static final int RACK_SIZE = 7;
+
+	private final Board board;
+	private final WordGraph graph;
+
+	// The letters placed on the overlay and their face values. A square is
+	// only on the overlay if its stamp matches the current generation
+	private char[] letters;
+	private int[] letterScores;
+	private int[] placedStamps;
+	private int noOfPlaced;
+
+	// The Zobrist keys of the letters placed on the overlay
+	private long placedHash;
+
+	// Cross-checks worked out again for squares next to placed letters
+	private int[] acrossChecks;
+	private int[] downChecks;
+	private int[] acrossScores;
+	private int[] downScores;
+	private int[] acrossStamps;
+	private int[] downStamps;
+
+	private int generation;
+	private char[] run;
+
+	/**
+	 * Constructs an empty overlay over a board
+	 * 
+	 * @param board the board to place letters over
+	 */
+	public BoardOverlay(Board board)
+	{
+		this.board = board;
+		graph = board.dictionary.getWordGraph();
+
+		letters = new char[SIZE * SIZE];
+		letterScores = new int[SIZE * SIZE];
+		placedStamps = new int[SIZE * SIZE];
+		acrossChecks = new int[SIZE * SIZE];
+		downChecks = new int[SIZE * SIZE];
+		acrossScores = new int[SIZE * SIZE];
+		downScores = new int[SIZE * SIZE];
+		acrossStamps = new int[SIZE * SIZE];
+		downStamps = new int[SIZE * SIZE];
+		run = new char[SIZE];
+		generation = 1;
+	}
+
+	/**
+	 * Returns the board under the overlay
+	 * 
+	 * @return the board
+	 */
+	public Board getBoard()
+	{
+		return board;
+	}
+
+	/**
+	 * Returns the letter on a square, from the overlay if one was placed there
+	 * and from the board otherwise
+	 * 
+	 * @param row the row of the square
+	 * @param column the column of the square
+	 * @return the letter in upper case, 0 if the square is empty
+	 */
+	public char getLetter(int row, int column)
+	{
+		int square = row * SIZE + column;
+		if (placedStamps[square] == generation)
+			return letters[square];
+		return board.getLetter(row, column);
+	}
+
+	/**
+	 * Returns the face value of the letter on a square
+	 * 
+	 * @param row the row of the square
+	 * @param column the column of the square
+	 * @return the face value of the letter, 0 if the square is empty
+	 */
+	public int getTileScore(int row, int column)
+	{
+		int square = row * SIZE + column;
+		if (placedStamps[square] == generation)
+			return letterScores[square];
+		return board.getTileScore(row, column);
+	}
+
+	/**
+	 * Checks if a square has no letter on the board or the overlay
+	 * 
+	 * @param row the row of the square
+	 * @param column the column of the square
+	 * @return true if the square is empty, false if not
+	 */
+	public boolean isEmpty(int row, int column)
+	{
+		return placedStamps[row * SIZE + column] != generation
+				&& board.isEmpty(row, column);
+	}
+
+	/**
+	 * Returns the Zobrist hash of the board with the letters of the overlay
+	 * on it
+	 * 
+	 * @return the hash of the letters on the board and the overlay
+	 */
+	public long getHash()
+	{
+		return board.getHash() ^ placedHash;
+	}
+
+	/**
+	 * Checks if any letters are on the board or the overlay
+	 * 
+	 * @return true if there is at least one letter, false if not
+	 */
+	public boolean hasLetters()
+	{
+		return noOfPlaced > 0 || board.getNoOfTiles() > 0;
+	}
+
+	/**
+	 * Returns the letter multiplier of a square on the board
+	 * 
+	 * @param row the row of the square
+	 * @param column the column of the square
+	 * @return 2 for a double letter square, 3 for a triple letter square, 1
+	 *         otherwise
+	 */
+	public int getLetterMultiplier(int row, int column)
+	{
+		return board.getLetterMultiplier(row, column);
+	}
+
+	/**
+	 * Returns the word multiplier of a square on the board
+	 * 
+	 * @param row the row of the square
+	 * @param column the column of the square
+	 * @return 2 for a double word square, 3 for a triple word square, 1
+	 *         otherwise
+	 */
+	public int getWordMultiplier(int row, int column)
+	{
+		return board.getWordMultiplier(row, column);
+	}
+
+	/**
+	 * Returns the letters that can be played on an empty square in a given
+	 * direction so that they form words with the letters beside the square
+	 * 
+	 * @param row the row of the square
+	 * @param column the column of the square
+	 * @param type the alignment of the word being played on the square
+	 * @return a bit mask of the letters allowed (bit 0 for A to bit 25 for Z)
+	 */
+	public int getCrossCheck(int row, int column, int type)
+	{
+		int square = row * SIZE + column;
+		if (type == Word.HORIZONTAL_WORD)
+		{
+			if (acrossStamps[square] == generation)
+				return acrossChecks[square];
+		}
+		else if (downStamps[square] == generation)
+			return downChecks[square];
+
+		return board.getCrossCheck(row, column, type);
+	}
+
+	/**
+	 * Returns the face value of the letters that form a word across an empty
+	 * square with a letter played on it in a given direction
+	 * 
+	 * @param row the row of the square
+	 * @param column the column of the square
+	 * @param type the alignment of the word being played on the square
+	 * @return the face value of the letters beside the square, -1 if there
+	 *         are none
+	 */
+	public int getCrossScore(int row, int column, int type)
+	{
+		int square = row * SIZE + column;
+		if (type == Word.HORIZONTAL_WORD)
+		{
+			if (acrossStamps[square] == generation)
+				return acrossScores[square];
+		}
+		else if (downStamps[square] == generation)
+			return downScores[square];
+
+		return board.getCrossScore(row, column, type);
+	}
+
+	/**
+	 * Places a letter on an empty square of the overlay and works out the
+	 * cross-checks of the empty squares at each end of the letters it joins
+	 * 
+	 * @param row the row of the square
+	 * @param column the column of the square
+	 * @param letter the letter in upper case
+	 * @param score the face value of the letter (0 for a blank)
+	 */
+	public void place(int row, int column, char letter, int score)
+	{
+		int square = row * SIZE + column;
+		letters[square] = letter;
+		letterScores[square] = score;
+		placedStamps[square] = generation;
+		noOfPlaced++;
+		placedHash ^= Zobrist.squareKey(square, letter - 'A', score == 0);
+
+		// Across checks depend on the letters above and below
+		updateEnd(row, column, -1, 0, Word.HORIZONTAL_WORD);
+		updateEnd(row, column, 1, 0, Word.HORIZONTAL_WORD);
+
+		// Down checks depend on the letters to the left and right
+		updateEnd(row, column, 0, -1, Word.VERTICAL_WORD);
+		updateEnd(row, column, 0, 1, Word.VERTICAL_WORD);
+	}
+
+	/**
+	 * Places the new tiles of a move on the overlay
+	 * 
+	 * @param move the move to place
+	 */
+	public void play(Move move)
+	{
+		for (int i = 0; i < move.length(); i++)
+		{
+			if (move.isNewTile(i))
+			{
+				char letter = move.getLetter(i);
+				int score = Tile.LETTER_VALUES[letter - 'A'];
+				if (move.isBlank(i))
+					score = 0;
+				place(move.getRow(i), move.getCol(i), letter, score);
+			}
+		}
+	}
+
+	/**
+	 * Removes every letter placed on the overlay
+	 */
+	public void clear()
+	{
+		generation++;
+		noOfPlaced = 0;
+		placedHash = 0;
+	}
+
+	/**
+	 * Returns the number of letters placed on the overlay
+	 * 
+	 * @return the number of letters placed
+	 */
+	public int getNoOfPlaced()
+	{
+		return noOfPlaced;
+	}
+
+	/**
+	 * Works out the cross-check of the first empty square past the letters
+	 * next to a square in a given direction
+	 * 
+	 * @param row the row of the square that changed
+	 * @param column the column of the square that changed
+	 * @param rowStep the step between rows in the direction to look
+	 * @param colStep the step between columns in the direction to look
+	 * @param type the alignment of the words the cross-check is for
+	 */
+	private void updateEnd(int row, int column, int rowStep, int colStep,
+			int type)
+	{
+		int r = row + rowStep;
+		int c = column + colStep;
+		while (isOnBoard(r, c) && !isEmpty(r, c))
+		{
+			r += rowStep;
+			c += colStep;
+		}
+
+		if (isOnBoard(r, c))
+			computeCrossCheck(r, c, type);
+	}
+
+	/**
+	 * Finds the letters that would form a word with the letters beside an
+	 * empty square if a letter were played on it in a given direction
+	 * 
+	 * @param row the row of the square
+	 * @param column the column of the square
+	 * @param type the alignment of the word being played on the square
+	 */
+	private void computeCrossCheck(int row, int column, int type)
+	{
+		// The surrounding word runs across the word being played
+		int rowStep = (type == Word.HORIZONTAL_WORD) ? 1 : 0;
+		int colStep = 1 - rowStep;
+
+		// Find the first letter of the surrounding word
+		int startRow = row;
+		int startCol = column;
+		while (isOnBoard(startRow - rowStep, startCol - colStep)
+				&& !isEmpty(startRow - rowStep, startCol - colStep))
+		{
+			startRow -= rowStep;
+			startCol -= colStep;
+		}
+
+		// Copy the letters on each side of the square into a run with a gap
+		// for the square
+		int length = 0;
+		int gap = 0;
+		int score = 0;
+		for (int r = startRow, c = startCol; isOnBoard(r, c); r += rowStep,
+				c += colStep)
+		{
+			if (r == row && c == column)
+				gap = length;
+			else if (isEmpty(r, c))
+				break;
+			else
+			{
+				run[length] = getLetter(r, c);
+				score += getTileScore(r, c);
+			}
+			length++;
+		}
+
+		// Any letter can go on a square with no letters beside it
+		int check = (1 << 26) - 1;
+		if (length > 1)
+			check = Board.findCrossCheck(graph, run, gap, length);
+		else
+			score = -1;
+
+		int square = row * SIZE + column;
+		if (type == Word.HORIZONTAL_WORD)
+		{
+			acrossChecks[square] = check;
+			acrossScores[square] = score;
+			acrossStamps[square] = generation;
+		}
+		else
+		{
+			downChecks[square] = check;
+			downScores[square] = score;
+			downStamps[square] = generation;
+		}
+	}
+
+	/**
+	 * Checks if a move can be played on the board with the overlay and finds
+	 * its score, without placing anything. The main word must spell a word,
+	 * fill only empty squares, use the letters already on the squares it
+	 * covers, join up with the letters on the board (or cover the centre
+	 * square of an empty board) and make only real words across it
+	 * 
+	 * @param move the move to score
+	 * @return the total score of the move, -1 if it can't be played
+	 */
+	public int score(Move move)
+	{
+		int length = move.length();
+		int rowStep = (move.getType() == Word.VERTICAL_WORD) ? 1 : 0;
+		int colStep = 1 - rowStep;
+		int firstRow = move.getRow(0);
+		int firstCol = move.getCol(0);
+		int lastRow = move.getRow(length - 1);
+		int lastCol = move.getCol(length - 1);
+
+		// The word must fit on the board with nothing just before or after it
+		if (length < 2 || !isOnBoard(firstRow, firstCol)
+				|| !isOnBoard(lastRow, lastCol))
+			return -1;
+		if (isOnBoard(firstRow - rowStep, firstCol - colStep)
+				&& !isEmpty(firstRow - rowStep, firstCol - colStep))
+			return -1;
+		if (isOnBoard(lastRow + rowStep, lastCol + colStep)
+				&& !isEmpty(lastRow + rowStep, lastCol + colStep))
+			return -1;
+
+		int wordScore = 0;
+		int multiplier = 1;
+		int crossTotal = 0;
+		int noOfNewTiles = 0;
+		boolean joined = false;
+		boolean boardEmpty = !hasLetters();
+
+		for (int i = 0; i < length; i++)
+		{
+			int row = move.getRow(i);
+			int col = move.getCol(i);
+			char letter = move.getLetter(i);
+			run[i] = letter;
+
+			if (move.isNewTile(i))
+			{
+				// New tiles go on empty squares and must make words across
+				int check = getCrossCheck(row, col, move.getType());
+				if (!isEmpty(row, col) || (check & (1 << (letter - 'A'))) == 0)
+					return -1;
+
+				int letterScore = 0;
+				if (!move.isBlank(i))
+					letterScore = Tile.LETTER_VALUES[letter - 'A']
+							* getLetterMultiplier(row, col);
+				wordScore += letterScore;
+				multiplier *= getWordMultiplier(row, col);
+
+				int crossScore = getCrossScore(row, col, move.getType());
+				if (crossScore >= 0)
+				{
+					crossTotal += (crossScore + letterScore)
+							* getWordMultiplier(row, col);
+					joined = true;
+				}
+				if (boardEmpty && row == CENTRE && col == CENTRE)
+					joined = true;
+				noOfNewTiles++;
+			}
+			else
+			{
+				// Old tiles must already be on the board
+				if (getLetter(row, col) != letter)
+					return -1;
+				wordScore += getTileScore(row, col);
+				joined = true;
+			}
+		}
+
+		if (noOfNewTiles == 0 || !joined
+				|| !board.dictionary.isWord(run, 0, length))
+			return -1;
+
+		int score = wordScore * multiplier + crossTotal;
+		if (noOfNewTiles == RACK_SIZE)
+			score += BINGO_BONUS;
+		return score;
+	}
+
+	/**
+	 * Checks if a square is on the board
+	 * 
+	 * @param row the row of the square
+	 * @param column the column of the square
+	 * @return true if the square is on the board, false if not
+	 */
+	private boolean isOnBoard(int row, int column)
+	{
+		return row >= 0 && row < SIZE && column >= 0 && column < SIZE;
+	}
+}
@@ -1,42 +1,90 @@
-import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.Scanner;
+import java.util.HashMap;
 
 /**
  * The Dictionary class is responsible for all the words that exist in the
- * English language Contains methods that check if word is in the dictionary
+ * English language Contains methods that check if word is in the dictionary.
+ * Each word list is only loaded once: use getInstance to get the shared
+ * Dictionary for it. A Dictionary never changes after it is loaded, so any
+ * number of boards and threads can read from it at the same time
  * 
  */
 public class Dictionary
 {
-	private HashSet<String> allWords;
-	private Scanner scanner;
-	char key;
+	public static final String WORD_LIST_FILE = "wordlist.txt";
+	public static final String GRAPH_FILE = "wordlist.dawg";
+
+	// The dictionaries loaded so far, by word list file
+	private static final HashMap<String, Dictionary> loaded =
+			new HashMap<String, Dictionary>();
+
+	private final WordGraph wordGraph;
 
 	/**
 	 * Constructs a dictionary object that stores all the words in the scrabble
-	 * dictionary as a HashSet
+	 * dictionary as a WordGraph. The graph is mapped from the compiled graph
+	 * file if there is one, otherwise it is built from the word list
+	 * 
+	 * @param wordListFile the name of the word list file
+	 * @param graphFile the name of the compiled graph file
 	 */
-	public Dictionary()
+	private Dictionary(String wordListFile, String graphFile)
 	{
-		allWords = new HashSet<String>();
-
+		WordGraph graph;
 		try
 		{
-			scanner = new Scanner(new File("wordlist.txt"));
-			while (scanner.hasNext())
+			graph = WordGraph.load(graphFile);
+		}
+		catch (IOException notCompiled)
+		{
+			try
 			{
-				String nextWord = scanner.next();
-				allWords.add(nextWord);
+				graph = WordGraph.fromWordList(wordListFile);
+			}
+			catch (IOException e)
+			{
+				System.out.println("TOO BAD.");
+				graph = new WordGraph(new ArrayList<String>());
 			}
-
 		}
-		catch (FileNotFoundException e)
+		wordGraph = graph;
+	}
+
+	/**
+	 * Returns the shared dictionary of the default word list
+	 * 
+	 * @return the dictionary for wordlist.txt
+	 */
+	public static Dictionary getInstance()
+	{
+		return getInstance(WORD_LIST_FILE);
+	}
+
+	/**
+	 * Returns the shared dictionary of a word list, loading it the first time
+	 * it is asked for. The compiled graph is looked for next to the word list
+	 * with the extension .dawg
+	 * 
+	 * @param wordListFile the name of the word list file
+	 * @return the dictionary for the word list
+	 */
+	public static synchronized Dictionary getInstance(String wordListFile)
+	{
+		Dictionary dictionary = loaded.get(wordListFile);
+		if (dictionary == null)
 		{
-			System.out.println("TOO BAD.");
+			String graphFile = wordListFile;
+			int extension = graphFile.lastIndexOf('.');
+			if (extension > graphFile.lastIndexOf('/')
+					&& extension > graphFile.lastIndexOf('\\'))
+				graphFile = graphFile.substring(0, extension);
+			graphFile += ".dawg";
+
+			dictionary = new Dictionary(wordListFile, graphFile);
+			loaded.put(wordListFile, dictionary);
 		}
+		return dictionary;
 	}
 
 	/**
@@ -47,11 +95,69 @@ public class Dictionary
 	 */
 	public boolean isWord(String word)
 	{
-		word = word.toLowerCase();
-		if (allWords.contains(word))
-		{
-			return true;
-		}
-		return false;
+		return isWordNode(wordGraph.follow(WordGraph.ROOT, word));
+	}
+
+	/**
+	 * Checks if part of an array of letters is a word in the dictionary
+	 * without creating a String
+	 * 
+	 * @param letters the letters to check, in upper or lower case
+	 * @param offset the index of the first letter of the word
+	 * @param length the number of letters in the word
+	 * @return true if the letters spell a word, false if not
+	 */
+	public boolean isWord(char[] letters, int offset, int length)
+	{
+		return isWordNode(wordGraph.follow(WordGraph.ROOT, letters, offset,
+				length));
+	}
+
+	/**
+	 * Checks if the tiles of a word on the board spell a word in the
+	 * dictionary, reading the letters straight off the tiles
+	 * 
+	 * @param word the word to check
+	 * @return true if the tiles spell a word, false if not
+	 */
+	public boolean isWord(Word word)
+	{
+		int node = WordGraph.ROOT;
+		for (int i = 0; i < word.length() && node != WordGraph.NONE; i++)
+			node = wordGraph.follow(node, word.getTile(i).getChar());
+		return isWordNode(node);
+	}
+
+	/**
+	 * Checks if a node of the word graph ends a word
+	 * 
+	 * @param node the node reached, or WordGraph.NONE
+	 * @return true if the node ends a word, false if not
+	 */
+	private boolean isWordNode(int node)
+	{
+		return node != WordGraph.NONE && node != WordGraph.ROOT
+				&& wordGraph.isTerminal(node);
+	}
+
+	/**
+	 * Checks if any word in the dictionary starts with the given letters
+	 * 
+	 * @param prefix the letters to check
+	 * @return true if at least one word starts with the prefix, false if not
+	 */
+	public boolean isPrefix(String prefix)
+	{
+		return wordGraph.follow(WordGraph.ROOT, prefix) != WordGraph.NONE;
+	}
+
+	/**
+	 * Returns the graph of all the words in the dictionary
+	 * 
+	 * @return the word graph
+	 */
+	public WordGraph getWordGraph()
+	{
+		return wordGraph;
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,209 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Compiles the word list into the binary word graph loaded by the Dictionary.
+ * The letter tree built from the word list is minimized by merging nodes that
+ * end the same set of words, so shared endings like -ING and -NESS are only
+ * stored once. Run it again whenever wordlist.txt changes:
+ * 
+ * java DictionaryCompiler [wordlist.txt] [wordlist.dawg]
+ * 
+ */
+public class DictionaryCompiler
+{
+	/**
+	 * Reads a word list and writes its minimized graph
+	 * 
+	 * @param args the word list file and the output file (optional)
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		String wordListFile = Dictionary.WORD_LIST_FILE;
+		String graphFile = Dictionary.GRAPH_FILE;
+		if (args.length > 0)
+			wordListFile = args[0];
+		if (args.length > 1)
+			graphFile = args[1];
+
+		WordGraph tree = WordGraph.fromWordList(wordListFile);
+		WordGraph graph = minimize(tree);
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(graphFile)));
+		try
+		{
+			graph.write(out);
+		}
+		finally
+		{
+			out.close();
+		}
+
+		System.out.println("Compiled " + tree.size() + " nodes into "
+				+ graph.size() + " nodes in " + graphFile);
+	}
+
+	/**
+	 * Merges the equivalent nodes of a graph
+	 * 
+	 * @param tree the graph to minimize, with each child stored after its
+	 *            parent
+	 * @return the minimized graph
+	 */
+	public static WordGraph minimize(WordGraph tree)
+	{
+		int noOfNodes = tree.size();
+
+		// Give every node the number of its equivalence class, starting from
+		// the last nodes so that the children of a node are numbered first.
+		// Two nodes are equivalent if they have the same flags and the same
+		// classes of children
+		int[] classOf = new int[noOfNodes];
+		HashMap<Key, Integer> classes = new HashMap<Key, Integer>();
+		ArrayList<int[]> classValues = new ArrayList<int[]>();
+
+		for (int node = noOfNodes - 1; node >= 0; node--)
+		{
+			int edges = tree.getEdges(node);
+			int[] values = new int[2 + Integer.bitCount(edges)];
+			values[0] = edges;
+			values[1] = tree.isTerminal(node) ? 1 : 0;
+
+			int index = 2;
+			for (int letters = edges; letters != 0; letters &= letters - 1)
+			{
+				int letter = Integer.numberOfTrailingZeros(letters);
+				values[index++] = classOf[tree.getChild(node, letter)];
+			}
+
+			Key key = new Key(values);
+			Integer nodeClass = classes.get(key);
+			if (nodeClass == null)
+			{
+				nodeClass = classValues.size();
+				classes.put(key, nodeClass);
+				classValues.add(values);
+			}
+			classOf[node] = nodeClass;
+		}
+
+		// Lay out the children of each class as a block, sharing blocks
+		// between classes with the same children. The root goes first on its
+		// own
+		int noOfClasses = classValues.size();
+		int[] blockOf = new int[noOfClasses];
+		boolean[] laidOut = new boolean[noOfClasses];
+		HashMap<Key, Integer> blocks = new HashMap<Key, Integer>();
+		ArrayList<int[]> blockClasses = new ArrayList<int[]>();
+		ArrayList<Integer> blockStarts = new ArrayList<Integer>();
+
+		int[] queue = new int[noOfClasses];
+		int queueStart = 0;
+		int queueEnd = 0;
+		int rootClass = classOf[WordGraph.ROOT];
+		queue[queueEnd++] = rootClass;
+		laidOut[rootClass] = true;
+		int noOfEntries = 1;
+
+		while (queueStart < queueEnd)
+		{
+			int nextClass = queue[queueStart++];
+			int[] values = classValues.get(nextClass);
+			if (values.length == 2)
+				continue;
+
+			int[] children = Arrays.copyOfRange(values, 2, values.length);
+			Key key = new Key(children);
+			Integer start = blocks.get(key);
+			if (start == null)
+			{
+				start = noOfEntries;
+				noOfEntries += children.length;
+				blocks.put(key, start);
+				blockClasses.add(children);
+				blockStarts.add(start);
+			}
+			blockOf[nextClass] = start;
+
+			for (int child : children)
+			{
+				if (!laidOut[child])
+				{
+					laidOut[child] = true;
+					queue[queueEnd++] = child;
+				}
+			}
+		}
+
+		// Write an entry for the root and for each class in each block
+		int[] edges = new int[noOfEntries];
+		boolean[] terminal = new boolean[noOfEntries];
+		int[] firstChild = new int[noOfEntries];
+
+		setEntry(WordGraph.ROOT, rootClass, classValues, blockOf, edges,
+				terminal, firstChild);
+		for (int block = 0; block < blockClasses.size(); block++)
+		{
+			int[] children = blockClasses.get(block);
+			int start = blockStarts.get(block);
+			for (int i = 0; i < children.length; i++)
+				setEntry(start + i, children[i], classValues, blockOf, edges,
+						terminal, firstChild);
+		}
+
+		return WordGraph.fromNodes(edges, terminal, firstChild, noOfEntries);
+	}
+
+	/**
+	 * Fills in the entry for a node of a given class
+	 * 
+	 * @param entry the index of the entry
+	 * @param nodeClass the class of the node
+	 * @param classValues the flags and children of each class
+	 * @param blockOf the index of the children of each class
+	 * @param edges the letter mask of each entry
+	 * @param terminal whether each entry ends a word
+	 * @param firstChild the index of the first child of each entry
+	 */
+	private static void setEntry(int entry, int nodeClass,
+			ArrayList<int[]> classValues, int[] blockOf, int[] edges,
+			boolean[] terminal, int[] firstChild)
+	{
+		int[] values = classValues.get(nodeClass);
+		edges[entry] = values[0];
+		terminal[entry] = (values[1] == 1);
+		firstChild[entry] = blockOf[nodeClass];
+	}
+
+	/**
+	 * An array of ints that can be used as a key in a HashMap
+	 */
+	private static class Key
+	{
+		private int[] values;
+		private int hash;
+
+		public Key(int[] values)
+		{
+			this.values = values;
+			hash = Arrays.hashCode(values);
+		}
+
+		public int hashCode()
+		{
+			return hash;
+		}
+
+		public boolean equals(Object other)
+		{
+			return other instanceof Key
+					&& Arrays.equals(values, ((Key) other).values);
+		}
+	}
+}
@@ -0,0 +1,521 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+
+/**
+ * Plays out the end of the game once the pile is empty. The tiles a player
+ * can't see are then exactly the other player's rack, so every move and
+ * reply can be searched. The search is an alpha-beta search of the points
+ * each player can still score, deepened one turn at a time until the game
+ * is played out or the search has looked at as many positions as it may.
+ * Counting positions rather than watching the clock means the same endgame
+ * always gets the same move however busy the machine is. Moves are tried
+ * highest scoring first, after the best move from the last search of the
+ * same position, and positions that come up again in a different order are
+ * looked up in a table instead of being searched again. The moves of each
+ * position are kept in a cache, so the deeper searches and the searches of
+ * the next turns don't have to find them again. The game ends when the
+ * last turn is taken and, unless other rules are set, when a player plays
+ * out or after six passes in a row
+ * 
+ */
+public class Endgame
+{
+	// The most positions a search may look at unless told otherwise
+	public static final int DEFAULT_NODE_LIMIT = 20000;
+
+	// The most turns searched when the number of turns left isn't known
+	public static final int MAX_TURNS = 14;
+
+	// The passes in a row that end the game unless told otherwise
+	public static final int DEFAULT_PASSES_TO_END = 6;
+
+	// The number of positions kept in the table
+	private static final int TABLE_SIZE = 1 << 16;
+
+	// The number of positions whose moves are kept
+	private static final int CACHE_SIZE = 4096;
+
+	// More points than can be scored in the rest of a game
+	private static final int INFINITY = 1000000;
+
+	// What the value stored for a position is
+	private static final byte EXACT = 0;
+	private static final byte LOWER_BOUND = 1;
+	private static final byte UPPER_BOUND = 2;
+
+	// Keys for the position details not held on the board or racks
+	private static final long TURN_KEY = 0x9E3779B97F4A7C15L;
+	private static final long PASSED_KEY = 0x632BE59BD9B4E019L;
+
+	// Sorts moves highest scoring first
+	private static final Comparator<Move> BY_SCORE = new Comparator<Move>()
+	{
+		public int compare(Move first, Move second)
+		{
+			return second.getScore() - first.getScore();
+		}
+	};
+
+	private BoardOverlay overlay;
+	private MoveGenerator generator;
+	private boolean playOutEnds;
+	private int passesToEnd;
+	private int nodeLimit;
+	private int nodesSearched;
+	private long timeLimit;
+	private long deadline;
+
+	// The letters and blanks on the two racks. Rack 0 is the player's
+	private int[][] racks;
+	private int[] blanks;
+	private int[] tilesLeft;
+
+	// The moves played from the start of the search to the current position
+	// (null for a pass)
+	private Move[] path;
+	private int pathLength;
+
+	// The positions searched before
+	private long[] tableKeys;
+	private int[] tableDepths;
+	private int[] tableValues;
+	private byte[] tableTypes;
+	private Move[] tableMoves;
+
+	// Read by other threads while a search is running
+	private volatile boolean stopped;
+	private volatile Move bestMove;
+	private volatile int depthSearched;
+	private boolean limitReached;
+	private Move rootBest;
+
+	/**
+	 * Constructs an endgame solver for a given board
+	 * 
+	 * @param board the board to play the endgame on
+	 */
+	public Endgame(Board board)
+	{
+		overlay = new BoardOverlay(board);
+		generator = new MoveGenerator(overlay);
+
+		// Moves are only compared by score here, so the cache is not shared
+		// with generators that add leave values
+		generator.setCache(new MoveCache(CACHE_SIZE));
+		playOutEnds = true;
+		passesToEnd = DEFAULT_PASSES_TO_END;
+		nodeLimit = DEFAULT_NODE_LIMIT;
+
+		racks = new int[2][26];
+		blanks = new int[2];
+		tilesLeft = new int[2];
+		path = new Move[MAX_TURNS];
+	}
+
+	/**
+	 * Sets when the game ends before its last turn, so the search plays it
+	 * out by the same rules as the game it is used in. Once a player has no
+	 * tiles left in a game that carries on, they can only pass
+	 * 
+	 * @param playOutEnds whether the game ends when a player uses up their
+	 *            tiles
+	 * @param passesToEnd the number of passes in a row that end the game, 0
+	 *            if passes never end it
+	 */
+	public void setRules(boolean playOutEnds, int passesToEnd)
+	{
+		this.playOutEnds = playOutEnds;
+		this.passesToEnd = passesToEnd;
+	}
+
+	/**
+	 * Sets the most positions a search may look at. Once they have been
+	 * looked at the search returns the best move of the deepest search it
+	 * finished
+	 * 
+	 * @param nodes the node limit, 0 for no limit
+	 */
+	public void setNodeLimit(int nodes)
+	{
+		nodeLimit = nodes;
+	}
+
+	/**
+	 * Sets the time a search may take as well as its node limit. Once the
+	 * time is up the search returns the best move of the deepest search it
+	 * finished, so a search with a time limit may not always choose the same
+	 * move
+	 * 
+	 * @param millis the time limit in milliseconds, 0 for no limit
+	 */
+	public void setTimeLimit(int millis)
+	{
+		timeLimit = millis * 1000000L;
+	}
+
+	/**
+	 * Gets ready for the search for a move. A stop is kept until this is
+	 * called, so a stop that comes in before the search begins still stops
+	 * it
+	 */
+	public void start()
+	{
+		stopped = false;
+	}
+
+	/**
+	 * Stops a running search so that it returns straight away with the best
+	 * move so far. The one turn search always finishes, so there is always
+	 * a best move
+	 */
+	public void stop()
+	{
+		stopped = true;
+	}
+
+	/**
+	 * Returns the best move of the deepest search finished so far. Safe to
+	 * call from another thread while the search is running
+	 * 
+	 * @return the best move so far, null if none has been found
+	 */
+	public Move getBestMove()
+	{
+		return bestMove;
+	}
+
+	/**
+	 * Returns the number of turns the deepest finished search looked ahead
+	 * 
+	 * @return the depth in turns
+	 */
+	public int getDepthSearched()
+	{
+		return depthSearched;
+	}
+
+	/**
+	 * Finds the move that leaves the player furthest ahead at the end of
+	 * the game
+	 * 
+	 * @param rack the tiles on the player's rack
+	 * @param opponent the number of each letter A to Z on the other player's
+	 *            rack, followed by the number of blanks
+	 * @param turnsLeft the most turns left in the game, counting this one, 0
+	 *            if there is no limit
+	 * @return the move to play, null to pass
+	 */
+	public Move solve(ArrayList<Tile> rack, int[] opponent, int turnsLeft)
+	{
+		limitReached = false;
+		bestMove = null;
+		depthSearched = 0;
+		nodesSearched = 0;
+		deadline = System.nanoTime() + timeLimit;
+
+		// Set up the racks
+		for (int letter = 0; letter < 26; letter++)
+		{
+			racks[0][letter] = 0;
+			racks[1][letter] = opponent[letter];
+		}
+		blanks[0] = 0;
+		blanks[1] = opponent[26];
+		for (Tile tile : rack)
+		{
+			if (tile.isBlank())
+				blanks[0]++;
+			else
+				racks[0][tile.getChar() - 'A']++;
+		}
+		for (int side = 0; side < 2; side++)
+		{
+			tilesLeft[side] = blanks[side];
+			for (int letter = 0; letter < 26; letter++)
+				tilesLeft[side] += racks[side][letter];
+		}
+
+		if (turnsLeft <= 0 || turnsLeft > MAX_TURNS)
+			turnsLeft = MAX_TURNS;
+
+		// The table only holds positions from this endgame. It is made the
+		// first time it is needed, so players that never reach the endgame
+		// don't carry it
+		if (tableKeys == null)
+		{
+			tableKeys = new long[TABLE_SIZE];
+			tableDepths = new int[TABLE_SIZE];
+			tableValues = new int[TABLE_SIZE];
+			tableTypes = new byte[TABLE_SIZE];
+			tableMoves = new Move[TABLE_SIZE];
+		}
+		for (int entry = 0; entry < TABLE_SIZE; entry++)
+		{
+			tableDepths[entry] = 0;
+			tableMoves[entry] = null;
+		}
+
+		// Search one turn deeper each time, keeping the best move of the
+		// last search that finished
+		pathLength = 0;
+		for (int depth = 1; depth <= turnsLeft; depth++)
+		{
+			search(0, depth, -INFINITY, INFINITY, turnsLeft, 0);
+			if (limitReached)
+				break;
+
+			bestMove = rootBest;
+			depthSearched = depth;
+		}
+
+		return bestMove;
+	}
+
+	/**
+	 * Finds the value of the current position to the player whose turn it
+	 * is: the points they will score from here less the points the other
+	 * player will score
+	 * 
+	 * @param side the player whose turn it is (0 or 1)
+	 * @param depth the number of turns to look ahead
+	 * @param alpha the value the player can already get elsewhere
+	 * @param beta the value the other player can already hold them to
+	 * @param turnsLeft the turns left in the game
+	 * @param passes the number of passes in a row before this turn
+	 * @return the value of the position
+	 */
+	private int search(int side, int depth, int alpha, int beta,
+			int turnsLeft, int passes)
+	{
+		if (depth == 0 || turnsLeft == 0
+				|| (tilesLeft[0] == 0 && tilesLeft[1] == 0))
+			return 0;
+		// The one turn search is always finished, so there is a move to play
+		if (depthSearched > 0 && (stopped
+				|| (nodeLimit > 0 && ++nodesSearched > nodeLimit)
+				|| (timeLimit > 0 && System.nanoTime() > deadline)))
+		{
+			limitReached = true;
+			return 0;
+		}
+
+		// Set the board up for this position
+		overlay.clear();
+		for (int move = 0; move < pathLength; move++)
+			if (path[move] != null)
+				overlay.play(path[move]);
+
+		// With one turn left the best score is all that counts
+		if (depth == 1)
+		{
+			Move best = generator.findBestMove(racks[side], blanks[side]);
+			if (pathLength == 0)
+				rootBest = best;
+			if (best == null)
+				return 0;
+			return best.getScore();
+		}
+
+		// Use what is known about the position from earlier searches
+		long key = positionKey(side, turnsLeft, passes);
+		int entry = index(key);
+		Move tableMove = null;
+		if (tableKeys[entry] == key && tableDepths[entry] > 0)
+		{
+			tableMove = tableMoves[entry];
+			if (tableDepths[entry] >= depth)
+			{
+				int value = tableValues[entry];
+				if (tableTypes[entry] == EXACT
+						|| (tableTypes[entry] == LOWER_BOUND && value >= beta)
+						|| (tableTypes[entry] == UPPER_BOUND && value <= alpha))
+					return value;
+			}
+		}
+
+		// A player who has played out in a game that carries on can only
+		// pass
+		ArrayList<Move> moves;
+		if (tilesLeft[side] == 0)
+			moves = new ArrayList<Move>();
+		else
+			moves = generator.generate(racks[side], blanks[side]);
+		Collections.sort(moves, BY_SCORE);
+		if (tableMove != null)
+		{
+			for (int move = 0; move < moves.size(); move++)
+			{
+				if (isSameMove(moves.get(move), tableMove))
+				{
+					moves.add(0, moves.remove(move));
+					break;
+				}
+			}
+		}
+
+		// A pass is always allowed, and is tried last
+		moves.add(null);
+
+		int originalAlpha = alpha;
+		int bestValue = -INFINITY;
+		Move best = null;
+		for (Move move : moves)
+		{
+			int value;
+			if (move == null)
+			{
+				// Enough passes in a row end the game
+				if (passesToEnd > 0 && passes + 1 >= passesToEnd)
+					value = 0;
+				else
+				{
+					path[pathLength++] = null;
+					value = -search(1 - side, depth - 1, -beta, -alpha,
+							turnsLeft - 1, passes + 1);
+					pathLength--;
+				}
+			}
+			else
+			{
+				take(side, move);
+				if (playOutEnds && tilesLeft[side] == 0)
+					value = move.getScore();
+				else
+				{
+					// The reply is worth score - value, so search it with the
+					// window moved by the score
+					path[pathLength++] = move;
+					value = move.getScore()
+							- search(1 - side, depth - 1, move.getScore()
+									- beta, move.getScore() - alpha,
+									turnsLeft - 1, 0);
+					pathLength--;
+				}
+				putBack(side, move);
+			}
+
+			if (limitReached)
+				return 0;
+
+			if (value > bestValue)
+			{
+				bestValue = value;
+				best = move;
+			}
+			if (value > alpha)
+				alpha = value;
+			if (alpha >= beta)
+				break;
+		}
+
+		// Remember the result for when the position comes up again
+		tableKeys[entry] = key;
+		tableDepths[entry] = depth;
+		tableValues[entry] = bestValue;
+		tableMoves[entry] = best;
+		if (bestValue <= originalAlpha)
+			tableTypes[entry] = UPPER_BOUND;
+		else if (bestValue >= beta)
+			tableTypes[entry] = LOWER_BOUND;
+		else
+			tableTypes[entry] = EXACT;
+
+		if (pathLength == 0)
+			rootBest = best;
+		return bestValue;
+	}
+
+	/**
+	 * Takes the tiles of a move off a rack
+	 * 
+	 * @param side the rack to take the tiles from
+	 * @param move the move played
+	 */
+	private void take(int side, Move move)
+	{
+		for (int i = 0; i < move.length(); i++)
+		{
+			if (!move.isNewTile(i))
+				continue;
+
+			if (move.isBlank(i))
+				blanks[side]--;
+			else
+				racks[side][move.getLetter(i) - 'A']--;
+			tilesLeft[side]--;
+		}
+	}
+
+	/**
+	 * Puts the tiles of a move back on a rack
+	 * 
+	 * @param side the rack to put the tiles back on
+	 * @param move the move taken back
+	 */
+	private void putBack(int side, Move move)
+	{
+		for (int i = 0; i < move.length(); i++)
+		{
+			if (!move.isNewTile(i))
+				continue;
+
+			if (move.isBlank(i))
+				blanks[side]++;
+			else
+				racks[side][move.getLetter(i) - 'A']++;
+			tilesLeft[side]++;
+		}
+	}
+
+	/**
+	 * Returns the hash of the current position: the board, both racks, whose
+	 * turn it is, the turns left and the number of passes in a row
+	 * 
+	 * @param side the player whose turn it is
+	 * @param turnsLeft the turns left in the game
+	 * @param passes the number of passes in a row before this turn
+	 * @return the hash of the position
+	 */
+	private long positionKey(int side, int turnsLeft, int passes)
+	{
+		long key = overlay.getHash()
+				^ Zobrist.rackHash(racks[side], blanks[side])
+				^ Long.rotateLeft(Zobrist.rackHash(racks[1 - side],
+						blanks[1 - side]), 1) ^ (turnsLeft * TURN_KEY);
+		key ^= passes * PASSED_KEY;
+		return key;
+	}
+
+	/**
+	 * Returns the entry of the table for a position
+	 * 
+	 * @param key the hash of the position
+	 * @return the index of the entry
+	 */
+	private static int index(long key)
+	{
+		return (int) (key ^ (key >>> 32)) & (TABLE_SIZE - 1);
+	}
+
+	/**
+	 * Checks if two moves put the same tiles in the same places
+	 * 
+	 * @param first the first move
+	 * @param second the second move
+	 * @return true if the moves are the same, false if not
+	 */
+	private static boolean isSameMove(Move first, Move second)
+	{
+		if (first.getRow() != second.getRow()
+				|| first.getCol() != second.getCol()
+				|| first.getType() != second.getType()
+				|| first.length() != second.length())
+			return false;
+		for (int i = 0; i < first.length(); i++)
+			if (first.getLetter(i) != second.getLetter(i)
+					|| first.isBlank(i) != second.isBlank(i))
+				return false;
+		return true;
+	}
+}
@@ -0,0 +1,326 @@
+import java.util.ArrayList;
+
+/**
+ * Plays a complete game of Scrabble between two computer players without a
+ * screen, using the same Board, Pile and Player classes as ScrabbleMain. No
+ * images or windows are ever loaded, so many games can be played quickly to
+ * tune and check the computer players. The endgame search is off unless it
+ * is given a node limit, so a game takes a few tens of milliseconds and the
+ * same pile always gives the same game
+ * 
+ */
+public class HeadlessGame
+{
+	private static final int RACK_SIZE = 7;
+
+	// The number of turns left once the pile runs out (as in ScrabbleMain)
+	private static final int TURNS_AFTER_EMPTY_PILE = 5;
+
+	// The game ends after this many turns in a row without a word played
+	private static final int MAX_SCORELESS_TURNS = 6;
+
+	private Board board;
+	private Pile deck;
+	private ArrayList<Tile> playedTiles;
+	private Player playerOne;
+	private Player playerTwo;
+	private Player currentPlayer;
+
+	// The tiles left on the rack by the last word played, before refilling
+	private ArrayList<Tile> lastLeave;
+
+	private int noOfTurns;
+	private int noOfMoves;
+	private int turnsLeft;
+	private int scorelessTurns;
+	private boolean countdownStarted;
+	private boolean gameOver;
+
+	/**
+	 * Sets up a game between two computer players with a freshly shuffled
+	 * pile
+	 * 
+	 * @param firstType the difficulty of player one (easy/hard)
+	 * @param secondType the difficulty of player two (easy/hard)
+	 */
+	public HeadlessGame(int firstType, int secondType)
+	{
+		this(firstType, secondType, shuffledPile());
+	}
+
+	/**
+	 * Sets up a game between two computer players dealing from a given pile
+	 * 
+	 * @param firstType the difficulty of player one (easy/hard)
+	 * @param secondType the difficulty of player two (easy/hard)
+	 * @param deck the pile to deal from, already shuffled
+	 */
+	public HeadlessGame(int firstType, int secondType, Pile deck)
+	{
+		this.deck = deck;
+		board = new Board();
+		playedTiles = new ArrayList<Tile>();
+		turnsLeft = TURNS_AFTER_EMPTY_PILE;
+
+		// Deal the two racks the same way ScrabbleMain does
+		ArrayList<Tile> firstRack = new ArrayList<Tile>();
+		ArrayList<Tile> secondRack = new ArrayList<Tile>();
+		for (int tile = 0; tile < RACK_SIZE; tile++)
+		{
+			firstRack.add(deck.deal());
+			secondRack.add(deck.deal());
+		}
+
+		playerOne = new Player(board, firstRack, firstType,
+				board.getWordsOnBoard(), playedTiles, 1);
+		playerTwo = new Player(board, secondRack, secondType,
+				board.getWordsOnBoard(), playedTiles, 2);
+		currentPlayer = playerOne;
+		setEndgameLimit(0);
+
+		// The endgame search plays the game out by the same rules
+		playerOne.setEndgameRules(true, MAX_SCORELESS_TURNS);
+		playerTwo.setEndgameRules(true, MAX_SCORELESS_TURNS);
+	}
+
+	/**
+	 * Sets the most positions the endgame search of each hard or simulating
+	 * player may look at for each move
+	 * 
+	 * @param nodes the node limit, 0 to turn the endgame search off
+	 */
+	public void setEndgameLimit(int nodes)
+	{
+		playerOne.setEndgameLimit(nodes);
+		playerTwo.setEndgameLimit(nodes);
+	}
+
+	/**
+	 * Creates a new pile and shuffles it
+	 * 
+	 * @return the shuffled pile
+	 */
+	private static Pile shuffledPile()
+	{
+		Pile deck = new Pile();
+		deck.shuffle();
+		return deck;
+	}
+
+	/**
+	 * Plays turns until the game is over
+	 */
+	public void play()
+	{
+		while (!gameOver)
+			playTurn();
+	}
+
+	/**
+	 * Lets the current player make a move, refills their rack and switches
+	 * to the other player
+	 * 
+	 * @return true if a word was played, false if the player passed
+	 */
+	public boolean playTurn()
+	{
+		if (gameOver)
+			return false;
+
+		// The turns left are only known once the countdown has started
+		currentPlayer.setTurnsLeft(countdownStarted ? turnsLeft : 0);
+		Word word = currentPlayer.makeMove();
+		if (word != null)
+		{
+			// Add the word to the board and lock its tiles in
+			currentPlayer.addScore(word.getScore());
+			board.addWord(word);
+			for (int i = 0; i < word.length(); i++)
+				word.getTile(i).lock();
+
+			noOfMoves++;
+			scorelessTurns = 0;
+			lastLeave = new ArrayList<Tile>(currentPlayer.getRack());
+		}
+		else
+			scorelessTurns++;
+
+		fillRack(currentPlayer);
+
+		// Count down the last turns once the pile is empty
+		if (countdownStarted)
+		{
+			turnsLeft--;
+			if (turnsLeft == 0)
+				gameOver = true;
+		}
+
+		// The game also ends when a player runs out of tiles or nobody can
+		// play
+		if ((currentPlayer.getRack().isEmpty() && deck.getNoOfTilesLeft() == 0)
+				|| scorelessTurns >= MAX_SCORELESS_TURNS)
+			gameOver = true;
+
+		if (currentPlayer == playerOne)
+			currentPlayer = playerTwo;
+		else
+			currentPlayer = playerOne;
+		noOfTurns++;
+
+		return word != null;
+	}
+
+	/**
+	 * Deals new tiles until a rack is filled again
+	 * 
+	 * @param player the player whose rack to fill
+	 */
+	private void fillRack(Player player)
+	{
+		while (player.getRack().size() < RACK_SIZE)
+		{
+			Tile nextTile = deck.deal();
+			if (nextTile == null)
+			{
+				countdownStarted = true;
+				return;
+			}
+			player.getRack().add(nextTile);
+		}
+	}
+
+	/**
+	 * Checks if the game has ended
+	 * 
+	 * @return true if the game is over, false if not
+	 */
+	public boolean isGameOver()
+	{
+		return gameOver;
+	}
+
+	/**
+	 * Returns the player with the higher score
+	 * 
+	 * @return the winning player, null if the game was a tie
+	 */
+	public Player getWinner()
+	{
+		if (playerOne.getScore() > playerTwo.getScore())
+			return playerOne;
+		else if (playerTwo.getScore() > playerOne.getScore())
+			return playerTwo;
+		return null;
+	}
+
+	/**
+	 * Returns the first player
+	 * 
+	 * @return player one
+	 */
+	public Player getPlayerOne()
+	{
+		return playerOne;
+	}
+
+	/**
+	 * Returns the second player
+	 * 
+	 * @return player two
+	 */
+	public Player getPlayerTwo()
+	{
+		return playerTwo;
+	}
+
+	/**
+	 * Returns the player whose turn it is
+	 * 
+	 * @return the current player
+	 */
+	public Player getCurrentPlayer()
+	{
+		return currentPlayer;
+	}
+
+	/**
+	 * Returns the tiles left on the rack by the last word played, before the
+	 * rack was filled again
+	 * 
+	 * @return the tiles left, null if no word has been played
+	 */
+	public ArrayList<Tile> getLastLeave()
+	{
+		return lastLeave;
+	}
+
+	/**
+	 * Returns the board the game is played on
+	 * 
+	 * @return the board
+	 */
+	public Board getBoard()
+	{
+		return board;
+	}
+
+	/**
+	 * Returns the number of turns taken so far, including passes
+	 * 
+	 * @return the number of turns
+	 */
+	public int getNoOfTurns()
+	{
+		return noOfTurns;
+	}
+
+	/**
+	 * Returns the number of words played so far
+	 * 
+	 * @return the number of moves
+	 */
+	public int getNoOfMoves()
+	{
+		return noOfMoves;
+	}
+
+	/**
+	 * Plays a number of games between an easy and a hard computer player and
+	 * prints the results
+	 * 
+	 * @param args the number of games to play (optional)
+	 */
+	public static void main(String[] args)
+	{
+		int noOfGames = 100;
+		if (args.length > 0)
+			noOfGames = Integer.parseInt(args[0]);
+
+		int[] wins = new int[3];
+		long totalMoves = 0;
+		long startTime = System.nanoTime();
+
+		for (int game = 0; game < noOfGames; game++)
+		{
+			HeadlessGame nextGame = new HeadlessGame(Player.EASY_COMPUTER,
+					Player.HARD_COMPUTER);
+			nextGame.play();
+
+			Player winner = nextGame.getWinner();
+			if (winner == nextGame.getPlayerOne())
+				wins[1]++;
+			else if (winner == nextGame.getPlayerTwo())
+				wins[2]++;
+			else
+				wins[0]++;
+			totalMoves += nextGame.getNoOfMoves();
+		}
+
+		double seconds = (System.nanoTime() - startTime) / 1e9;
+		System.out.println("Easy wins: " + wins[1] + ", hard wins: "
+				+ wins[2] + ", ties: " + wins[0]);
+		System.out.printf("%d games in %.1f s (%.0f games per minute, %.0f "
+				+ "moves per second)%n", noOfGames, seconds, noOfGames * 60
+				/ seconds, totalMoves / seconds);
+	}
+}
@@ -0,0 +1,347 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * The top scores, kept in a log that each result is added to the end of.
+ * The log is never rewritten, so recording a score only writes that score,
+ * and games running at the same time take turns adding to it under a lock
+ * on the file. The best scores are kept in order as the log is read, so
+ * looking up a place on the board takes the same time however long the log
+ * gets. Each result carries a checksum, so a result cut short by a crash is
+ * found and dropped before the next one is added
+ * 
+ */
+public class Leaderboard
+{
+	public static final String SCORES_FILE = "scores.log";
+
+	// The header of a score log
+	private static final int MAGIC = 0x53434F52;
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 8;
+
+	// Each result is the length of the name, the name, the score and a
+	// checksum of the rest
+	private static final int RECORD_OVERHEAD = 10;
+
+	private final Path file;
+
+	// The best scores from highest to lowest, with ties in the order they
+	// were recorded
+	private final String[] names;
+	private final int[] scores;
+	private int noOfScores;
+
+	// How far through the log has been read
+	private long readTo;
+
+	/**
+	 * Constructs a board of the best scores in a log. Nothing is read until
+	 * the board is refreshed or a score is recorded
+	 * 
+	 * @param fileName the name of the log
+	 * @param size the number of scores on the board
+	 */
+	public Leaderboard(String fileName, int size)
+	{
+		file = Paths.get(fileName);
+		names = new String[size];
+		scores = new int[size];
+	}
+
+	/**
+	 * Reads any results added to the log since it was last read, including
+	 * those recorded by other games
+	 * 
+	 * @throws IOException if the log could not be read or is not a score log
+	 */
+	public synchronized void refresh() throws IOException
+	{
+		FileChannel channel;
+		try
+		{
+			channel = FileChannel.open(file, StandardOpenOption.READ);
+		}
+		catch (NoSuchFileException noScoresYet)
+		{
+			return;
+		}
+
+		try
+		{
+			FileLock lock = channel.lock(0, Long.MAX_VALUE, true);
+			try
+			{
+				catchUp(channel, false);
+			}
+			finally
+			{
+				lock.release();
+			}
+		}
+		finally
+		{
+			channel.close();
+		}
+	}
+
+	/**
+	 * Adds a result to the end of the log and to the board
+	 * 
+	 * @param name the name of the player
+	 * @param score the player's score
+	 * @throws IOException if the result could not be written
+	 */
+	public synchronized void record(String name, int score) throws IOException
+	{
+		byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+		if (nameBytes.length > 0xFFFF)
+			throw new IOException("The name is too long");
+
+		ByteBuffer record = ByteBuffer.allocate(RECORD_OVERHEAD
+				+ nameBytes.length);
+		record.putShort((short) nameBytes.length);
+		record.put(nameBytes);
+		record.putInt(score);
+		record.putInt(checksum(record.array(), 0, record.position()));
+		record.flip();
+
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ,
+				StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+		try
+		{
+			FileLock lock = channel.lock();
+			try
+			{
+				// Take in what other games have recorded, so the result goes
+				// after theirs
+				catchUp(channel, true);
+				if (channel.size() == 0)
+				{
+					ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+					header.putInt(MAGIC);
+					header.putInt(VERSION);
+					header.flip();
+					writeFully(channel, header, 0);
+					readTo = HEADER_SIZE;
+				}
+
+				writeFully(channel, record, readTo);
+				channel.force(false);
+				readTo += record.capacity();
+				add(name, score);
+			}
+			finally
+			{
+				lock.release();
+			}
+		}
+		finally
+		{
+			channel.close();
+		}
+	}
+
+	/**
+	 * Checks if a score would make it onto the board
+	 * 
+	 * @param score the score to check
+	 * @return true if the score is high enough, false if not
+	 */
+	public synchronized boolean isTopScore(int score)
+	{
+		return noOfScores < scores.length || score > scores[noOfScores - 1];
+	}
+
+	/**
+	 * Returns the number of scores on the board
+	 * 
+	 * @return the number of scores, at most the size of the board
+	 */
+	public synchronized int getNoOfScores()
+	{
+		return noOfScores;
+	}
+
+	/**
+	 * Returns the name of the player in a given place
+	 * 
+	 * @param place the place on the board, 0 for the highest score
+	 * @return the player's name
+	 */
+	public synchronized String getName(int place)
+	{
+		return names[place];
+	}
+
+	/**
+	 * Returns the score in a given place
+	 * 
+	 * @param place the place on the board, 0 for the highest score
+	 * @return the score
+	 */
+	public synchronized int getScore(int place)
+	{
+		return scores[place];
+	}
+
+	/**
+	 * Returns the board as a String with one player's name and score on
+	 * each line
+	 */
+	public synchronized String toString()
+	{
+		StringBuilder board = new StringBuilder();
+		for (int place = 0; place < noOfScores; place++)
+		{
+			board.append(names[place] + " - Score: " + scores[place]);
+			board.append("\n");
+		}
+		return board.toString();
+	}
+
+	/**
+	 * Reads the results added to the log since it was last read. A result
+	 * that was cut short is left out, and is cut off the log if it is about
+	 * to be added to
+	 * 
+	 * @param channel the open log, locked
+	 * @param repair whether to cut off a result that was cut short
+	 * @throws IOException if the log could not be read or is not a score log
+	 */
+	private void catchUp(FileChannel channel, boolean repair)
+			throws IOException
+	{
+		long size = channel.size();
+
+		// Start again if the log has been replaced by a shorter one
+		if (size < readTo)
+		{
+			noOfScores = 0;
+			readTo = 0;
+		}
+
+		if (readTo == 0)
+		{
+			// A log cut short while its header was written has no results
+			if (size < HEADER_SIZE)
+			{
+				if (repair)
+					channel.truncate(0);
+				return;
+			}
+
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			readFully(channel, header, 0);
+			if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION)
+				throw new IOException(file + " is not a score log");
+			readTo = HEADER_SIZE;
+		}
+
+		ByteBuffer buffer = ByteBuffer.allocate((int) (size - readTo));
+		readFully(channel, buffer, readTo);
+		byte[] bytes = buffer.array();
+
+		int start = 0;
+		while (bytes.length - start >= RECORD_OVERHEAD)
+		{
+			int nameLength = buffer.getShort(start) & 0xFFFF;
+			int end = start + RECORD_OVERHEAD + nameLength;
+			if (end > bytes.length
+					|| buffer.getInt(end - 4) != checksum(bytes, start,
+							end - start - 4))
+				break;
+
+			add(new String(bytes, start + 2, nameLength,
+					StandardCharsets.UTF_8), buffer.getInt(end - 8));
+			start = end;
+		}
+		readTo += start;
+
+		if (repair && readTo < size)
+			channel.truncate(readTo);
+	}
+
+	/**
+	 * Puts a score in its place on the board, if it is high enough
+	 * 
+	 * @param name the name of the player
+	 * @param score the player's score
+	 */
+	private void add(String name, int score)
+	{
+		if (!isTopScore(score))
+			return;
+
+		// Move the lower scores down to make room
+		int place = Math.min(noOfScores, scores.length - 1);
+		while (place > 0 && scores[place - 1] < score)
+		{
+			names[place] = names[place - 1];
+			scores[place] = scores[place - 1];
+			place--;
+		}
+		names[place] = name;
+		scores[place] = score;
+		if (noOfScores < scores.length)
+			noOfScores++;
+	}
+
+	/**
+	 * Works out the checksum of part of a record
+	 * 
+	 * @param bytes the bytes of the record
+	 * @param offset where the part starts
+	 * @param length the length of the part
+	 * @return the checksum
+	 */
+	private static int checksum(byte[] bytes, int offset, int length)
+	{
+		CRC32 crc = new CRC32();
+		crc.update(bytes, offset, length);
+		return (int) crc.getValue();
+	}
+
+	/**
+	 * Reads from a channel until a buffer is full
+	 * 
+	 * @param channel the channel to read from
+	 * @param buffer the buffer to fill
+	 * @param position where in the channel to start
+	 * @throws IOException if the channel ends first or could not be read
+	 */
+	private static void readFully(FileChannel channel, ByteBuffer buffer,
+			long position) throws IOException
+	{
+		while (buffer.hasRemaining())
+		{
+			int read = channel.read(buffer, position);
+			if (read < 0)
+				throw new IOException("Unexpected end of file");
+			position += read;
+		}
+	}
+
+	/**
+	 * Writes all of a buffer to a channel
+	 * 
+	 * @param channel the channel to write to
+	 * @param buffer the buffer to write
+	 * @param position where in the channel to start
+	 * @throws IOException if the buffer could not be written
+	 */
+	private static void writeFully(FileChannel channel, ByteBuffer buffer,
+			long position) throws IOException
+	{
+		while (buffer.hasRemaining())
+			position += channel.write(buffer, position);
+	}
+}
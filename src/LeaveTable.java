@@ -0,0 +1,264 @@
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+
+/**
+ * The value of the tiles left on a rack after a move, for every set of up to
+ * MAX_LEAVE tiles. A good leave like ERS makes the next move score more, and
+ * a bad one like UUV makes it score less, so the hard computer adds the
+ * value of the leave to the score of each move. The values are worked out
+ * from self-play by LeaveTableBuilder and stored one byte per leave in the
+ * order of the leaves' ranks, so a value is looked up without searching. A
+ * table never changes once it is loaded, so any number of threads can read
+ * from it at the same time
+ * 
+ */
+public class LeaveTable
+{
+	public static final String LEAVE_FILE = "leaves.dat";
+
+	// A move plays at least one tile, so at most six are left
+	public static final int MAX_LEAVE = 6;
+
+	// The letters A to Z are 0 to 25 and a blank is 26
+	public static final int BLANK = 26;
+	public static final int NO_OF_TILE_TYPES = 27;
+
+	// The header of a leave file
+	private static final int MAGIC = 0x4C454156;
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 12;
+
+	// The values are stored in half points
+	private static final float POINTS_PER_UNIT = 0.5f;
+
+	// CHOOSE[n][k] is the number of ways to choose k things out of n
+	private static final int[][] CHOOSE = new int[NO_OF_TILE_TYPES
+			+ MAX_LEAVE][MAX_LEAVE + 1];
+
+	// The rank of the first leave of each size. The leaves of each size are
+	// numbered after all the smaller leaves
+	private static final int[] FIRST_RANK = new int[MAX_LEAVE + 2];
+
+	/**
+	 * The number of leaves in a table
+	 */
+	public static final int SIZE;
+
+	static
+	{
+		for (int n = 0; n < CHOOSE.length; n++)
+		{
+			CHOOSE[n][0] = 1;
+			for (int k = 1; k <= MAX_LEAVE && k <= n; k++)
+				CHOOSE[n][k] = CHOOSE[n - 1][k - 1] + CHOOSE[n - 1][k];
+		}
+
+		// There are (27 + k - 1) choose k leaves of k tiles
+		for (int size = 0; size <= MAX_LEAVE; size++)
+			FIRST_RANK[size + 1] = FIRST_RANK[size]
+					+ CHOOSE[NO_OF_TILE_TYPES + size - 1][size];
+		SIZE = FIRST_RANK[MAX_LEAVE + 1];
+	}
+
+	// The table loaded from LEAVE_FILE, if it has been asked for
+	private static LeaveTable instance;
+	private static boolean loaded;
+
+	// One signed byte per leave, in the order of their ranks
+	private final ByteBuffer values;
+
+	private final float maxValue;
+
+	/**
+	 * Constructs a table from a buffer of values
+	 * 
+	 * @param values the value of each leave in half points
+	 */
+	private LeaveTable(ByteBuffer values)
+	{
+		this.values = values;
+
+		byte max = Byte.MIN_VALUE;
+		for (int rank = 0; rank < SIZE; rank++)
+			max = (byte) Math.max(max, values.get(rank));
+		maxValue = max * POINTS_PER_UNIT;
+	}
+
+	/**
+	 * Constructs a table holding the given values
+	 * 
+	 * @param points the value of each leave in points, in the order of their
+	 *            ranks
+	 * @return the table
+	 */
+	static LeaveTable fromValues(float[] points)
+	{
+		byte[] units = new byte[SIZE];
+		for (int rank = 0; rank < SIZE; rank++)
+		{
+			int value = Math.round(points[rank] / POINTS_PER_UNIT);
+			units[rank] = (byte) Math.max(Byte.MIN_VALUE,
+					Math.min(Byte.MAX_VALUE, value));
+		}
+		return new LeaveTable(ByteBuffer.wrap(units));
+	}
+
+	/**
+	 * Returns the shared table in LEAVE_FILE, loading it the first time it is
+	 * asked for
+	 * 
+	 * @return the table, null if there is no leave file
+	 */
+	public static synchronized LeaveTable getInstance()
+	{
+		if (!loaded)
+		{
+			loaded = true;
+			try
+			{
+				instance = load(LEAVE_FILE);
+			}
+			catch (IOException noTable)
+			{
+				instance = null;
+			}
+		}
+		return instance;
+	}
+
+	/**
+	 * Maps a leave file into memory
+	 * 
+	 * @param fileName the name of the leave file
+	 * @return the table stored in the file
+	 * @throws IOException if the file could not be read or is not a leave
+	 *             file
+	 */
+	public static LeaveTable load(String fileName) throws IOException
+	{
+		RandomAccessFile file = new RandomAccessFile(fileName, "r");
+		try
+		{
+			FileChannel channel = file.getChannel();
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+					channel.size());
+
+			// Check the header before trusting the rest of the file
+			if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC
+					|| buffer.getInt(4) != VERSION)
+				throw new IOException(fileName + " is not a leave table");
+
+			if (buffer.getInt(8) != SIZE
+					|| buffer.capacity() != HEADER_SIZE + SIZE)
+				throw new IOException(fileName + " is the wrong size");
+
+			buffer.position(HEADER_SIZE);
+			return new LeaveTable(buffer.slice());
+		}
+		finally
+		{
+			// The mapping stays valid after the file is closed
+			file.close();
+		}
+	}
+
+	/**
+	 * Writes this table in the leave file format
+	 * 
+	 * @param out the stream to write to
+	 * @throws IOException if the table could not be written
+	 */
+	public void write(DataOutputStream out) throws IOException
+	{
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(SIZE);
+		for (int rank = 0; rank < SIZE; rank++)
+			out.writeByte(values.get(rank));
+	}
+
+	/**
+	 * Returns the rank of a leave. Every leave of up to MAX_LEAVE tiles has
+	 * its own rank from 0 to SIZE - 1. With the tiles in order, the i-th
+	 * tile (from 1) of type t is counted as the number t + i - 1, which
+	 * turns the leave into a set of different numbers, and the set is ranked
+	 * by adding up (t + i - 1) choose i
+	 * 
+	 * @param letters the number of each letter A to Z in the leave
+	 * @param blanks the number of blanks in the leave
+	 * @return the rank of the leave, -1 if it has too many tiles
+	 */
+	public static int rank(int[] letters, int blanks)
+	{
+		int rank = 0;
+		int size = 0;
+		for (int letter = 0; letter < 26; letter++)
+		{
+			for (int copy = 0; copy < letters[letter]; copy++)
+			{
+				size++;
+				if (size > MAX_LEAVE)
+					return -1;
+				rank += CHOOSE[letter + size - 1][size];
+			}
+		}
+		for (int copy = 0; copy < blanks; copy++)
+		{
+			size++;
+			if (size > MAX_LEAVE)
+				return -1;
+			rank += CHOOSE[BLANK + size - 1][size];
+		}
+		return FIRST_RANK[size] + rank;
+	}
+
+	/**
+	 * Returns the value of a leave
+	 * 
+	 * @param letters the number of each letter A to Z in the leave
+	 * @param blanks the number of blanks in the leave
+	 * @return the value in points, 0 if the leave has too many tiles
+	 */
+	public float getValue(int[] letters, int blanks)
+	{
+		int rank = rank(letters, blanks);
+		if (rank < 0)
+			return 0;
+		return values.get(rank) * POINTS_PER_UNIT;
+	}
+
+	/**
+	 * Returns the value of the tiles left on a rack
+	 * 
+	 * @param leave the tiles left
+	 * @return the value in points, 0 if there are too many tiles
+	 */
+	public float getValue(ArrayList<Tile> leave)
+	{
+		int[] letters = new int[26];
+		int blanks = 0;
+		for (Tile tile : leave)
+		{
+			if (tile.isBlank())
+				blanks++;
+			else
+				letters[tile.getChar() - 'A']++;
+		}
+		return getValue(letters, blanks);
+	}
+
+	/**
+	 * Returns the highest value of any leave, so moves that can't be the
+	 * best even with the best leave can be passed over without a look up
+	 * 
+	 * @return the highest value in points
+	 */
+	public float getMaxValue()
+	{
+		return maxValue;
+	}
+}
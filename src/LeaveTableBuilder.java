@@ -0,0 +1,340 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Builds the leave table used by the hard computer from self-play. Each time
+ * a player plays a word, the tiles left on their rack are recorded along
+ * with how much more or less than average the player scores on their next
+ * turn. Few leaves come up often enough to be valued from their own games,
+ * so a simple model is fitted to all of them first: a value for the first
+ * and for each extra copy of every tile, one for the balance of vowels and
+ * consonants and one for the number of tiles kept. Each leave is then
+ * valued by the model, moved towards the average of its own games when it
+ * has some. The players use the current table while the games are played,
+ * so running it again refines the table:
+ * 
+ * java LeaveTableBuilder [number of games] [leaves.dat]
+ * 
+ */
+public class LeaveTableBuilder
+{
+	private static final long SEED = 2013;
+
+	// How many games of its own a leave needs to count as much as the model
+	private static final int MODEL_WEIGHT = 20;
+
+	// Keeps the fit steady when features always come up together
+	private static final double RIDGE = 1.0;
+
+	// The features of the model
+	private static final int SINGLE = 0;
+	private static final int EXTRA = LeaveTable.NO_OF_TILE_TYPES;
+	private static final int BALANCE = 2 * LeaveTable.NO_OF_TILE_TYPES;
+	private static final int KEPT = BALANCE + 2 * LeaveTable.MAX_LEAVE + 1;
+	private static final int NO_OF_FEATURES = KEPT + LeaveTable.MAX_LEAVE + 1;
+
+	// The total and number of next turn scores for each leave
+	private double[] totals;
+	private int[] counts;
+	private int noOfSamples;
+	private double scoreTotal;
+
+	// The state of the fit while the leaves are gone through
+	private boolean fitting;
+	private double mean;
+	private double[][] normal;
+	private double[] weights;
+	private float[] values;
+	private int[] features = new int[NO_OF_FEATURES];
+
+	/**
+	 * Constructs a builder with no games recorded
+	 */
+	public LeaveTableBuilder()
+	{
+		totals = new double[LeaveTable.SIZE];
+		counts = new int[LeaveTable.SIZE];
+	}
+
+	/**
+	 * Plays games and builds a table from them
+	 * 
+	 * @param args the number of games and the output file (optional)
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		int noOfGames = 10000;
+		String leaveFile = LeaveTable.LEAVE_FILE;
+		if (args.length > 0)
+			noOfGames = Integer.parseInt(args[0]);
+		if (args.length > 1)
+			leaveFile = args[1];
+
+		LeaveTableBuilder builder = new LeaveTableBuilder();
+		for (int game = 0; game < noOfGames; game++)
+			builder.recordGame(SEED + game);
+
+		LeaveTable table = builder.build();
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(leaveFile)));
+		try
+		{
+			table.write(out);
+		}
+		finally
+		{
+			out.close();
+		}
+
+		System.out.println("Valued " + LeaveTable.SIZE + " leaves from "
+				+ builder.noOfSamples + " moves in " + noOfGames
+				+ " games in " + leaveFile);
+	}
+
+	/**
+	 * Plays a seeded game between two hard players and records the leave of
+	 * each word played while the pile still had tiles to refill the rack
+	 * 
+	 * @param seed the seed for shuffling the pile
+	 */
+	private void recordGame(long seed)
+	{
+		Pile deck = new Pile();
+		deck.shuffle(new Random(seed));
+		HeadlessGame game = new HeadlessGame(Player.HARD_COMPUTER,
+				Player.HARD_COMPUTER, deck);
+
+		// The leave of each player waiting for the score of their next turn
+		int[] waiting = { -1, -1 };
+
+		// Once the pile is empty the players search the endgame, which says
+		// nothing about leaves, so the game is stopped there
+		while (!game.isGameOver() && deck.getNoOfTilesLeft() > 0)
+		{
+			Player player = game.getCurrentPlayer();
+			int playerIndex = 0;
+			if (player == game.getPlayerTwo())
+				playerIndex = 1;
+
+			int scoreBefore = player.getScore();
+			boolean played = game.playTurn();
+			int turnScore = player.getScore() - scoreBefore;
+
+			if (waiting[playerIndex] >= 0)
+			{
+				totals[waiting[playerIndex]] += turnScore;
+				counts[waiting[playerIndex]]++;
+				scoreTotal += turnScore;
+				noOfSamples++;
+			}
+
+			// Once the pile is empty the leave is all the player has left,
+			// which is valued differently
+			waiting[playerIndex] = -1;
+			if (played && deck.getNoOfTilesLeft() > 0)
+			{
+				int[] letters = new int[26];
+				int blanks = countTiles(game.getLastLeave(), letters);
+				waiting[playerIndex] = LeaveTable.rank(letters, blanks);
+			}
+		}
+	}
+
+	/**
+	 * Counts the tiles of each letter in a list
+	 * 
+	 * @param tiles the tiles to count
+	 * @param letters the number of each letter A to Z, filled in
+	 * @return the number of blanks
+	 */
+	private static int countTiles(ArrayList<Tile> tiles, int[] letters)
+	{
+		int blanks = 0;
+		for (Tile tile : tiles)
+		{
+			if (tile.isBlank())
+				blanks++;
+			else
+				letters[tile.getChar() - 'A']++;
+		}
+		return blanks;
+	}
+
+	/**
+	 * Fits the model to the recorded games and values every leave
+	 * 
+	 * @return the table of leave values
+	 */
+	public LeaveTable build()
+	{
+		mean = scoreTotal / Math.max(noOfSamples, 1);
+
+		// Least squares: solve (X'X + ridge) w = X'y over the leaves seen
+		normal = new double[NO_OF_FEATURES][NO_OF_FEATURES + 1];
+		fitting = true;
+		visitLeaves(0, 0, new int[LeaveTable.NO_OF_TILE_TYPES]);
+		for (int feature = 0; feature < NO_OF_FEATURES; feature++)
+			normal[feature][feature] += RIDGE;
+		weights = solve(normal);
+
+		values = new float[LeaveTable.SIZE];
+		fitting = false;
+		visitLeaves(0, 0, new int[LeaveTable.NO_OF_TILE_TYPES]);
+		return LeaveTable.fromValues(values);
+	}
+
+	/**
+	 * Goes through every leave of up to MAX_LEAVE tiles, choosing how many
+	 * of each tile type to keep in turn
+	 * 
+	 * @param type the next tile type to choose
+	 * @param size the number of tiles chosen so far
+	 * @param tiles the number of each tile type chosen
+	 */
+	private void visitLeaves(int type, int size, int[] tiles)
+	{
+		if (type == LeaveTable.NO_OF_TILE_TYPES)
+		{
+			int rank = LeaveTable.rank(tiles, tiles[LeaveTable.BLANK]);
+			if (fitting)
+				addToFit(rank, tiles);
+			else
+				valueLeave(rank, tiles);
+			return;
+		}
+
+		for (int copies = 0; size + copies <= LeaveTable.MAX_LEAVE; copies++)
+		{
+			tiles[type] = copies;
+			visitLeaves(type + 1, size + copies, tiles);
+		}
+		tiles[type] = 0;
+	}
+
+	/**
+	 * Adds the games of a leave to the least squares equations
+	 * 
+	 * @param rank the rank of the leave
+	 * @param tiles the number of each tile type in the leave
+	 */
+	private void addToFit(int rank, int[] tiles)
+	{
+		if (counts[rank] == 0)
+			return;
+
+		int noOfFeatures = getFeatures(tiles, features);
+		double excess = totals[rank] - counts[rank] * mean;
+		for (int i = 0; i < noOfFeatures; i++)
+		{
+			int row = features[i];
+			for (int j = 0; j < noOfFeatures; j++)
+				normal[row][features[j]] += counts[rank];
+			normal[row][NO_OF_FEATURES] += excess;
+		}
+	}
+
+	/**
+	 * Values a leave by the model, moved towards the average of its own
+	 * games. The empty leave is kept at 0
+	 * 
+	 * @param rank the rank of the leave
+	 * @param tiles the number of each tile type in the leave
+	 */
+	private void valueLeave(int rank, int[] tiles)
+	{
+		int noOfFeatures = getFeatures(tiles, features);
+		double value = 0;
+		for (int i = 0; i < noOfFeatures; i++)
+			value += weights[features[i]];
+
+		double excess = totals[rank] - counts[rank] * mean;
+		value = (excess + MODEL_WEIGHT * value) / (counts[rank] + MODEL_WEIGHT);
+
+		double emptyValue = weights[BALANCE + LeaveTable.MAX_LEAVE]
+				+ weights[KEPT];
+		values[rank] = (float) (value - emptyValue);
+	}
+
+	/**
+	 * Lists the features of the model that a leave has
+	 * 
+	 * @param tiles the number of each tile type in the leave
+	 * @param features the features, filled in
+	 * @return the number of features, each counted once per copy
+	 */
+	private static int getFeatures(int[] tiles, int[] features)
+	{
+		int noOfFeatures = 0;
+		int vowels = 0;
+		int consonants = 0;
+		int kept = 0;
+		for (int type = 0; type < LeaveTable.NO_OF_TILE_TYPES; type++)
+		{
+			if (tiles[type] == 0)
+				continue;
+
+			features[noOfFeatures++] = SINGLE + type;
+			for (int copy = 1; copy < tiles[type]; copy++)
+				features[noOfFeatures++] = EXTRA + type;
+
+			kept += tiles[type];
+			if (type == LeaveTable.BLANK)
+				continue;
+			if ("AEIOU".indexOf('A' + type) >= 0)
+				vowels += tiles[type];
+			else
+				consonants += tiles[type];
+		}
+
+		features[noOfFeatures++] = BALANCE + LeaveTable.MAX_LEAVE + vowels
+				- consonants;
+		features[noOfFeatures++] = KEPT + kept;
+		return noOfFeatures;
+	}
+
+	/**
+	 * Solves a system of linear equations by Gaussian elimination
+	 * 
+	 * @param equations the coefficients of each equation followed by its
+	 *            right hand side. Changed by the elimination
+	 * @return the solution
+	 */
+	private static double[] solve(double[][] equations)
+	{
+		int n = equations.length;
+		for (int column = 0; column < n; column++)
+		{
+			// Use the largest coefficient left in the column as the pivot
+			int pivot = column;
+			for (int row = column + 1; row < n; row++)
+				if (Math.abs(equations[row][column]) > Math
+						.abs(equations[pivot][column]))
+					pivot = row;
+			double[] swap = equations[column];
+			equations[column] = equations[pivot];
+			equations[pivot] = swap;
+
+			for (int row = column + 1; row < n; row++)
+			{
+				double factor = equations[row][column]
+						/ equations[column][column];
+				for (int next = column; next <= n; next++)
+					equations[row][next] -= factor * equations[column][next];
+			}
+		}
+
+		double[] solution = new double[n];
+		for (int row = n - 1; row >= 0; row--)
+		{
+			double total = equations[row][n];
+			for (int next = row + 1; next < n; next++)
+				total -= equations[row][next] * solution[next];
+			solution[row] = total / equations[row][row];
+		}
+		return solution;
+	}
+}
@@ -0,0 +1,241 @@
+/**
+ * A placement of letters on the board found by the move generator. Keeps
+ * track of where the main word starts, its direction, its letters, which of
+ * those letters come from the rack, which of those are blanks, and the score
+ * of the placement
+ * 
+ */
+public class Move
+{
+	private int row;
+	private int col;
+	private int type;
+	private char[] letters;
+	private int newTiles;
+	private int blankTiles;
+	private int score;
+	private float leaveValue;
+
+	/**
+	 * Constructs a move
+	 * 
+	 * @param row the row of the first letter of the main word
+	 * @param col the column of the first letter of the main word
+	 * @param type the alignment of the word (vertical or horizontal)
+	 * @param letters the letters of the main word in upper case
+	 * @param newTiles a bit mask of the letters placed from the rack (bit i
+	 *            for letter i of the word)
+	 * @param score the total score of the placement
+	 */
+	public Move(int row, int col, int type, char[] letters, int newTiles,
+			int score)
+	{
+		this(row, col, type, letters, newTiles, score, 0);
+	}
+
+	/**
+	 * Constructs a move that leaves tiles of a known value on the rack
+	 * 
+	 * @param row the row of the first letter of the main word
+	 * @param col the column of the first letter of the main word
+	 * @param type the alignment of the word (vertical or horizontal)
+	 * @param letters the letters of the main word in upper case
+	 * @param newTiles a bit mask of the letters placed from the rack (bit i
+	 *            for letter i of the word)
+	 * @param score the total score of the placement
+	 * @param leaveValue the value of the tiles left on the rack
+	 */
+	public Move(int row, int col, int type, char[] letters, int newTiles,
+			int score, float leaveValue)
+	{
+		this(row, col, type, letters, newTiles, 0, score, leaveValue);
+	}
+
+	/**
+	 * Constructs a move that may play blanks
+	 * 
+	 * @param row the row of the first letter of the main word
+	 * @param col the column of the first letter of the main word
+	 * @param type the alignment of the word (vertical or horizontal)
+	 * @param letters the letters of the main word in upper case, with each
+	 *            blank given the letter it stands for
+	 * @param newTiles a bit mask of the letters placed from the rack (bit i
+	 *            for letter i of the word)
+	 * @param blankTiles a bit mask of the new tiles that are blanks
+	 * @param score the total score of the placement
+	 * @param leaveValue the value of the tiles left on the rack
+	 */
+	public Move(int row, int col, int type, char[] letters, int newTiles,
+			int blankTiles, int score, float leaveValue)
+	{
+		this.row = row;
+		this.col = col;
+		this.type = type;
+		this.letters = letters;
+		this.newTiles = newTiles;
+		this.blankTiles = blankTiles;
+		this.score = score;
+		this.leaveValue = leaveValue;
+	}
+
+	/**
+	 * Returns the row of the first letter of the main word
+	 * 
+	 * @return the row index of the first letter
+	 */
+	public int getRow()
+	{
+		return row;
+	}
+
+	/**
+	 * Returns the column of the first letter of the main word
+	 * 
+	 * @return the column index of the first letter
+	 */
+	public int getCol()
+	{
+		return col;
+	}
+
+	/**
+	 * Returns the type of the main word
+	 * 
+	 * @return Word.VERTICAL_WORD or Word.HORIZONTAL_WORD
+	 */
+	public int getType()
+	{
+		return type;
+	}
+
+	/**
+	 * Returns the length of the main word
+	 * 
+	 * @return the length of the word
+	 */
+	public int length()
+	{
+		return letters.length;
+	}
+
+	/**
+	 * Returns the letter at index i of the main word
+	 * 
+	 * @param i the index of the letter
+	 * @return the letter in upper case
+	 */
+	public char getLetter(int i)
+	{
+		return letters[i];
+	}
+
+	/**
+	 * Checks if the letter at index i is placed from the rack
+	 * 
+	 * @param i the index of the letter
+	 * @return true if the letter is a new tile, false if it is already on the
+	 *         board
+	 */
+	public boolean isNewTile(int i)
+	{
+		return (newTiles & (1 << i)) != 0;
+	}
+
+	/**
+	 * Checks if the letter at index i is a blank placed from the rack
+	 * 
+	 * @param i the index of the letter
+	 * @return true if the letter is a new blank, false if not
+	 */
+	public boolean isBlank(int i)
+	{
+		return (blankTiles & (1 << i)) != 0;
+	}
+
+	/**
+	 * Returns the number of blanks placed from the rack
+	 * 
+	 * @return the number of new blanks
+	 */
+	public int getNoOfBlanks()
+	{
+		return Integer.bitCount(blankTiles);
+	}
+
+	/**
+	 * Returns the number of tiles placed from the rack
+	 * 
+	 * @return the number of new tiles
+	 */
+	public int getNoOfNewTiles()
+	{
+		return Integer.bitCount(newTiles);
+	}
+
+	/**
+	 * Returns the row of the letter at index i
+	 * 
+	 * @param i the index of the letter
+	 * @return the row index
+	 */
+	public int getRow(int i)
+	{
+		if (type == Word.VERTICAL_WORD)
+			return row + i;
+		return row;
+	}
+
+	/**
+	 * Returns the column of the letter at index i
+	 * 
+	 * @param i the index of the letter
+	 * @return the column index
+	 */
+	public int getCol(int i)
+	{
+		if (type == Word.HORIZONTAL_WORD)
+			return col + i;
+		return col;
+	}
+
+	/**
+	 * Returns the score of this move
+	 * 
+	 * @return the total score including surrounding words and bonuses
+	 */
+	public int getScore()
+	{
+		return score;
+	}
+
+	/**
+	 * Returns the value of the tiles this move leaves on the rack
+	 * 
+	 * @return the leave value in points, 0 if it is not known
+	 */
+	public float getLeaveValue()
+	{
+		return leaveValue;
+	}
+
+	/**
+	 * Returns how good this move is, counting the tiles it leaves on the rack
+	 * as well as its score
+	 * 
+	 * @return the score plus the leave value
+	 */
+	public float getValue()
+	{
+		return score + leaveValue;
+	}
+
+	/**
+	 * Returns the string representation of this move
+	 * 
+	 * @return the main word of the move
+	 */
+	public String toString()
+	{
+		return new String(letters);
+	}
+}
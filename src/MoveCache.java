@@ -0,0 +1,144 @@
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A cache of the moves found for a board position and a rack, looked up by
+ * their Zobrist hashes. It holds a fixed number of positions and forgets the
+ * one used least recently when it is full. The move lists in the cache are
+ * shared, so they must not be changed: MoveGenerator copies a list into the
+ * cache and hands out copies of it. Any number of threads can use the same
+ * cache
+ * 
+ */
+public class MoveCache
+{
+	public static final int DEFAULT_CAPACITY = 4096;
+
+	private final LinkedHashMap<Key, ArrayList<Move>> entries;
+	private int hits;
+	private int misses;
+
+	/**
+	 * Constructs a cache that holds DEFAULT_CAPACITY positions
+	 */
+	public MoveCache()
+	{
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Constructs a cache that holds a given number of positions
+	 * 
+	 * @param capacity the most positions to keep
+	 */
+	public MoveCache(final int capacity)
+	{
+		// Keep the entries in the order they were used, oldest first
+		entries = new LinkedHashMap<Key, ArrayList<Move>>(16, 0.75f, true)
+		{
+			protected boolean removeEldestEntry(
+					Map.Entry<Key, ArrayList<Move>> eldest)
+			{
+				return size() > capacity;
+			}
+		};
+	}
+
+	/**
+	 * Looks up the moves found for a position
+	 * 
+	 * @param boardHash the hash of the board
+	 * @param rackHash the hash of the rack
+	 * @return the moves, null if the position is not in the cache
+	 */
+	public synchronized ArrayList<Move> get(long boardHash, long rackHash)
+	{
+		ArrayList<Move> moves = entries.get(new Key(boardHash, rackHash));
+		if (moves == null)
+			misses++;
+		else
+			hits++;
+		return moves;
+	}
+
+	/**
+	 * Adds the moves found for a position
+	 * 
+	 * @param boardHash the hash of the board
+	 * @param rackHash the hash of the rack
+	 * @param moves every legal move for the position
+	 */
+	public synchronized void put(long boardHash, long rackHash,
+			ArrayList<Move> moves)
+	{
+		entries.put(new Key(boardHash, rackHash), moves);
+	}
+
+	/**
+	 * Removes every position from the cache
+	 */
+	public synchronized void clear()
+	{
+		entries.clear();
+	}
+
+	/**
+	 * Returns the number of positions in the cache
+	 * 
+	 * @return the number of positions
+	 */
+	public synchronized int size()
+	{
+		return entries.size();
+	}
+
+	/**
+	 * Returns the number of look ups that found their position
+	 * 
+	 * @return the number of hits
+	 */
+	public synchronized int getHits()
+	{
+		return hits;
+	}
+
+	/**
+	 * Returns the number of look ups that did not find their position
+	 * 
+	 * @return the number of misses
+	 */
+	public synchronized int getMisses()
+	{
+		return misses;
+	}
+
+	/**
+	 * The hashes of a board and a rack together
+	 */
+	private static class Key
+	{
+		private long boardHash;
+		private long rackHash;
+
+		public Key(long boardHash, long rackHash)
+		{
+			this.boardHash = boardHash;
+			this.rackHash = rackHash;
+		}
+
+		public int hashCode()
+		{
+			long hash = boardHash ^ (rackHash * 31);
+			return (int) (hash ^ (hash >>> 32));
+		}
+
+		public boolean equals(Object other)
+		{
+			if (!(other instanceof Key))
+				return false;
+			Key key = (Key) other;
+			return boardHash == key.boardHash && rackHash == key.rackHash;
+		}
+	}
+}
@@ -0,0 +1,999 @@
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Finds every legal placement of a rack on the board along with its score.
+ * Uses the anchor and cross-check method of Appel and Jacobson: each row and
+ * column is searched one at a time by walking the word graph, so only letter
+ * sequences that can still become words are ever tried. A blank is tried as
+ * each letter the word graph allows on a square rather than as every letter
+ * of the alphabet, so it only adds the words it can really help make
+ * 
+ */
+public class MoveGenerator
+{
+	private static final int SIZE = 15;
+	private static final int CENTRE = 7;
+	private static final int BINGO_BONUS = 50;
+	private static final int RACK_SIZE = 7;
+
+	// Every row and every column is searched
+	public static final int NO_OF_LINES = 2 * SIZE;
+
+	// Split a parallel search until each task has at most this many lines
+	private static final int LINES_PER_TASK = 2;
+
+	private BoardOverlay overlay;
+	private WordGraph graph;
+
+	// The number of each letter on the rack, the number of tiles on it
+	// including blanks, and the number of blanks
+	private int[] rack;
+	private int tilesOnRack;
+	private int blanksOnRack;
+
+	// The values of the tiles a move leaves on the rack, if they count
+	private LeaveTable leaves;
+
+	// The row or column being searched
+	private int lineType;
+	private int lineIndex;
+	private char[] line;
+	private int[] lineScores;
+	private int[] checks;
+	private int[] crossScores;
+	private boolean[] anchors;
+	private int[] letterMultipliers;
+	private int[] wordMultipliers;
+
+	// The word being built
+	private char[] partial;
+	private int partialLength;
+
+	// Bit i is set if letter i of the word being built is a blank
+	private int partialBlanks;
+
+	private ArrayList<Move> moves;
+	private int movesFound;
+	private boolean keepAllMoves;
+
+	// The best move found on the current line, if it beats the best value
+	// found before it
+	private Move lineBest;
+	private float bestValue;
+
+	// The generator in charge of the search. This is the generator itself
+	// unless it is helping with part of a parallel search
+	private MoveGenerator control;
+
+	// The moves found for positions searched before, if any
+	private MoveCache cache;
+
+	// The time allowed for a search (0 for no limit) and when it runs out
+	private long timeLimit;
+	private long deadline;
+
+	// Read by other threads while a search is running
+	private volatile boolean stopped;
+	private volatile Move bestMove;
+	private volatile int linesSearched;
+
+	/**
+	 * Constructs a move generator for a given board
+	 * 
+	 * @param board the board to find moves on
+	 */
+	public MoveGenerator(Board board)
+	{
+		this(new BoardOverlay(board));
+	}
+
+	/**
+	 * Constructs a move generator that finds moves on a board with the
+	 * letters of an overlay placed on it
+	 * 
+	 * @param overlay the overlay to find moves on
+	 */
+	public MoveGenerator(BoardOverlay overlay)
+	{
+		this.overlay = overlay;
+		graph = overlay.getBoard().dictionary.getWordGraph();
+		control = this;
+		keepAllMoves = true;
+
+		rack = new int[26];
+		line = new char[SIZE];
+		lineScores = new int[SIZE];
+		checks = new int[SIZE];
+		crossScores = new int[SIZE];
+		anchors = new boolean[SIZE];
+		letterMultipliers = new int[SIZE];
+		wordMultipliers = new int[SIZE];
+		partial = new char[SIZE];
+	}
+
+	/**
+	 * Finds all the legal moves for a rack on the current board. If the
+	 * search is stopped from another thread, only the moves found so far are
+	 * returned
+	 * 
+	 * @param rackTiles the tiles on the rack
+	 * @return the list of legal moves with their scores
+	 */
+	public ArrayList<Move> generate(ArrayList<Tile> rackTiles)
+	{
+		// Positions in the cache don't need to be searched again
+		long boardHash = 0;
+		long rackHash = 0;
+		if (cache != null)
+		{
+			boardHash = overlay.getHash();
+			rackHash = Zobrist.rackHash(rackTiles);
+			ArrayList<Move> cached = cache.get(boardHash, rackHash);
+			if (cached != null)
+			{
+				useCachedMoves(cached);
+				return new ArrayList<Move>(cached);
+			}
+		}
+
+		countRack(rackTiles);
+		searchAllLines();
+
+		// Only a full search has every move for the position
+		if (cache != null && !isStopped())
+			cache.put(boardHash, rackHash, new ArrayList<Move>(moves));
+
+		return moves;
+	}
+
+	/**
+	 * Finds the highest valued legal move for a rack, searching the rows and
+	 * columns of the board in parallel on a pool of threads. The move found
+	 * is the same one makeHardMove would pick from the moves of generate
+	 * 
+	 * @param rackTiles the tiles on the rack
+	 * @param pool the pool to search on
+	 * @return the best move, null if there are none
+	 */
+	public Move findBestMove(ArrayList<Tile> rackTiles, ForkJoinPool pool)
+	{
+		if (cache != null)
+		{
+			ArrayList<Move> cached = cache.get(overlay.getHash(),
+					Zobrist.rackHash(rackTiles));
+			if (cached != null)
+			{
+				useCachedMoves(cached);
+				return bestMove;
+			}
+		}
+
+		countRack(rackTiles);
+		int[] order = startSearch();
+		if (order == null)
+			return null;
+
+		return pool.invoke(new LineTask(order, 0, NO_OF_LINES,
+				!overlay.hasLetters()));
+	}
+
+	/**
+	 * Finds all the legal moves for a rack given as the number of each
+	 * letter rather than as tiles, so that racks can be tried out without
+	 * making tiles for them
+	 * 
+	 * @param letters the number of each letter A to Z on the rack
+	 * @param blanks the number of blanks on the rack
+	 * @return the list of legal moves with their scores
+	 */
+	public ArrayList<Move> generate(int[] letters, int blanks)
+	{
+		long boardHash = 0;
+		long rackHash = 0;
+		if (cache != null)
+		{
+			boardHash = overlay.getHash();
+			rackHash = Zobrist.rackHash(letters, blanks);
+			ArrayList<Move> cached = cache.get(boardHash, rackHash);
+			if (cached != null)
+			{
+				useCachedMoves(cached);
+				return new ArrayList<Move>(cached);
+			}
+		}
+
+		setRack(letters, blanks);
+		searchAllLines();
+
+		if (cache != null && !isStopped())
+			cache.put(boardHash, rackHash, new ArrayList<Move>(moves));
+
+		return moves;
+	}
+
+	/**
+	 * Finds the highest valued legal move for a rack on the calling thread,
+	 * without keeping the other moves. Used to try out many racks quickly,
+	 * so the rack is given as the number of each letter rather than as tiles
+	 * 
+	 * @param letters the number of each letter A to Z on the rack
+	 * @param blanks the number of blanks on the rack
+	 * @return the best move, null if there are none
+	 */
+	public Move findBestMove(int[] letters, int blanks)
+	{
+		if (cache != null)
+		{
+			ArrayList<Move> cached = cache.get(overlay.getHash(),
+					Zobrist.rackHash(letters, blanks));
+			if (cached != null)
+			{
+				useCachedMoves(cached);
+				return bestMove;
+			}
+		}
+
+		setRack(letters, blanks);
+		keepAllMoves = false;
+		searchAllLines();
+		keepAllMoves = true;
+		return bestMove;
+	}
+
+	/**
+	 * Searches every line of the board in turn on the calling thread
+	 * 
+	 * @return the moves found
+	 */
+	private ArrayList<Move> searchAllLines()
+	{
+		moves = new ArrayList<Move>();
+		int[] order = startSearch();
+		if (order == null)
+			return moves;
+
+		boolean boardEmpty = !overlay.hasLetters();
+		for (int nextLine = 0; nextLine < NO_OF_LINES
+				&& !isStopped(); nextLine++)
+		{
+			setLine(order[nextLine]);
+			searchLine(boardEmpty);
+			lineSearched();
+		}
+		return moves;
+	}
+
+	/**
+	 * Sets the letters on the rack from their counts
+	 * 
+	 * @param letters the number of each letter A to Z on the rack
+	 * @param blanks the number of blanks on the rack
+	 */
+	private void setRack(int[] letters, int blanks)
+	{
+		tilesOnRack = 0;
+		for (int letter = 0; letter < rack.length; letter++)
+		{
+			rack[letter] = letters[letter];
+			tilesOnRack += letters[letter];
+		}
+		blanksOnRack = blanks;
+		tilesOnRack += blanks;
+	}
+
+	/**
+	 * Counts the letters and blanks on the rack
+	 * 
+	 * @param rackTiles the tiles on the rack
+	 */
+	private void countRack(ArrayList<Tile> rackTiles)
+	{
+		for (int letter = 0; letter < rack.length; letter++)
+			rack[letter] = 0;
+		tilesOnRack = 0;
+		blanksOnRack = 0;
+		for (Tile tile : rackTiles)
+		{
+			if (tile.isBlank())
+				blanksOnRack++;
+			else
+				rack[tile.getChar() - 'A']++;
+			tilesOnRack++;
+		}
+	}
+
+	/**
+	 * Resets the search and decides the order to search the lines in
+	 * 
+	 * @return the line numbers in the order to search them, null if there
+	 *         are no tiles to play
+	 */
+	private int[] startSearch()
+	{
+		bestMove = null;
+		linesSearched = 0;
+		movesFound = 0;
+		bestValue = -Float.MAX_VALUE;
+		if (timeLimit > 0)
+			deadline = System.nanoTime() + timeLimit;
+
+		if (tilesOnRack == 0)
+			return null;
+
+		// Search every row for horizontal words and every column for vertical
+		// words. Line 2i is row i and line 2i + 1 is column i
+		int[] order = new int[NO_OF_LINES];
+		for (int nextLine = 0; nextLine < NO_OF_LINES; nextLine++)
+			order[nextLine] = nextLine;
+
+		// With a time limit, search the most promising lines first so the
+		// best moves are likely to be found before time runs out
+		if (timeLimit > 0)
+			sortLines(order, !overlay.hasLetters());
+
+		return order;
+	}
+
+	/**
+	 * Reports that a line has been searched to the generator in charge, along
+	 * with the best move found on it
+	 */
+	private void lineSearched()
+	{
+		synchronized (control)
+		{
+			control.linesSearched++;
+			Move best = control.bestMove;
+			if (lineBest != null
+					&& (best == null || lineBest.getValue() > best.getValue()))
+				control.bestMove = lineBest;
+		}
+		lineBest = null;
+	}
+
+	/**
+	 * Checks if the search has been stopped. As with the time limit, a
+	 * search carries on until it has found a move, so being told to move now
+	 * never makes the computer pass when it could play
+	 * 
+	 * @return true if the search should stop, false if not
+	 */
+	private boolean isStopped()
+	{
+		return control.stopped && movesFound > 0;
+	}
+
+	/**
+	 * A task that finds the best move on a range of lines, splitting the
+	 * range in half until it is small enough to search directly
+	 */
+	private class LineTask extends RecursiveTask<Move>
+	{
+		private static final long serialVersionUID = 1L;
+
+		private int[] order;
+		private int firstLine;
+		private int lastLine;
+		private boolean boardEmpty;
+
+		public LineTask(int[] order, int firstLine, int lastLine,
+				boolean boardEmpty)
+		{
+			this.order = order;
+			this.firstLine = firstLine;
+			this.lastLine = lastLine;
+			this.boardEmpty = boardEmpty;
+		}
+
+		protected Move compute()
+		{
+			if (lastLine - firstLine <= LINES_PER_TASK)
+				return searchLines();
+
+			int middle = (firstLine + lastLine) / 2;
+			LineTask left = new LineTask(order, firstLine, middle, boardEmpty);
+			left.fork();
+			Move right = new LineTask(order, middle, lastLine, boardEmpty)
+					.compute();
+			Move best = left.join();
+
+			// Keep the earlier move on a tie, as makeHardMove does
+			if (best == null
+					|| (right != null && right.getValue() > best.getValue()))
+				best = right;
+			return best;
+		}
+
+		/**
+		 * Searches the lines of this task with a generator of its own
+		 * 
+		 * @return the best move on the lines, null if there are none
+		 */
+		private Move searchLines()
+		{
+			MoveGenerator helper = new MoveGenerator(overlay);
+			helper.control = MoveGenerator.this;
+			helper.timeLimit = timeLimit;
+			helper.deadline = deadline;
+			helper.tilesOnRack = tilesOnRack;
+			helper.blanksOnRack = blanksOnRack;
+			helper.leaves = leaves;
+			System.arraycopy(rack, 0, helper.rack, 0, rack.length);
+			helper.moves = new ArrayList<Move>();
+			helper.bestValue = -Float.MAX_VALUE;
+
+			// Only the best move is needed, so worse moves aren't kept
+			helper.keepAllMoves = false;
+
+			Move best = null;
+			for (int nextLine = firstLine; nextLine < lastLine
+					&& !helper.isStopped(); nextLine++)
+			{
+				helper.setLine(order[nextLine]);
+				helper.searchLine(boardEmpty);
+
+				// A line only has a best move if it beats the earlier lines
+				if (helper.lineBest != null)
+					best = helper.lineBest;
+				helper.lineSearched();
+			}
+			return best;
+		}
+	}
+
+	/**
+	 * Makes the generator look up positions in a cache before searching them
+	 * and add the moves of each full search to it. The cache keeps its own
+	 * copy of each list, so the lists returned can still be changed. The
+	 * values of the moves depend on the leave values, so a cache should only
+	 * be shared by generators with the same leave values
+	 * 
+	 * @param cache the cache to use, null for none
+	 */
+	public void setCache(MoveCache cache)
+	{
+		this.cache = cache;
+	}
+
+	/**
+	 * Makes the generator value each move by its score plus the value of the
+	 * tiles it leaves on the rack. The best move of a search is then the one
+	 * with the highest value rather than the highest score
+	 * 
+	 * @param leaves the leave values to use, null to go by score alone
+	 */
+	public void setLeaveTable(LeaveTable leaves)
+	{
+		this.leaves = leaves;
+	}
+
+	/**
+	 * Sets the search up as if it had just finished with the moves from the
+	 * cache
+	 * 
+	 * @param cached the moves for the position
+	 */
+	private void useCachedMoves(ArrayList<Move> cached)
+	{
+		Move best = null;
+		for (Move move : cached)
+		{
+			if (best == null || move.getValue() > best.getValue())
+				best = move;
+		}
+
+		bestMove = best;
+		linesSearched = NO_OF_LINES;
+	}
+
+	/**
+	 * Sets the time a search may take. Once the time is up the search
+	 * returns the moves found so far, as long as it has found at least one
+	 * 
+	 * @param millis the time limit in milliseconds, 0 for no limit
+	 */
+	public void setTimeLimit(int millis)
+	{
+		timeLimit = millis * 1000000L;
+	}
+
+	/**
+	 * Makes a line the current line
+	 * 
+	 * @param lineNo the number of the line, 2i for row i and 2i + 1 for
+	 *            column i
+	 */
+	private void setLine(int lineNo)
+	{
+		lineIndex = lineNo / 2;
+		if (lineNo % 2 == 0)
+			lineType = Word.HORIZONTAL_WORD;
+		else
+			lineType = Word.VERTICAL_WORD;
+	}
+
+	/**
+	 * Sorts lines from most to least promising. A line is more promising the
+	 * more anchors it has and the more special squares lie within reach of
+	 * them
+	 * 
+	 * @param order the line numbers to sort
+	 * @param boardEmpty whether the board has no tiles on it
+	 */
+	private void sortLines(int[] order, boolean boardEmpty)
+	{
+		int[] promise = new int[NO_OF_LINES];
+		for (int lineNo = 0; lineNo < NO_OF_LINES; lineNo++)
+		{
+			setLine(lineNo);
+			loadLine(boardEmpty);
+
+			for (int square = 0; square < SIZE; square++)
+			{
+				if (line[square] != 0)
+					continue;
+
+				// Only count squares a word through an anchor could cover
+				int first = Math.max(0, square - RACK_SIZE + 1);
+				int last = Math.min(SIZE - 1, square + RACK_SIZE - 1);
+				boolean inReach = false;
+				for (int anchor = first; anchor <= last && !inReach; anchor++)
+					inReach = anchors[anchor];
+
+				if (anchors[square])
+					promise[lineNo] += RACK_SIZE;
+				if (inReach)
+					promise[lineNo] += letterMultipliers[square]
+							* wordMultipliers[square] * wordMultipliers[square];
+			}
+		}
+
+		// Insertion sort, keeping lines of equal promise in board order
+		for (int next = 1; next < NO_OF_LINES; next++)
+		{
+			int lineNo = order[next];
+			int index = next;
+			while (index > 0 && promise[order[index - 1]] < promise[lineNo])
+			{
+				order[index] = order[index - 1];
+				index--;
+			}
+			order[index] = lineNo;
+		}
+	}
+
+	/**
+	 * Gets ready for the searches for a move. A stop is kept until this is
+	 * called, so a stop that comes in before a search begins still stops it
+	 */
+	public void start()
+	{
+		stopped = false;
+	}
+
+	/**
+	 * Stops a search running on another thread. The search finishes the
+	 * anchor it is on and returns the moves found so far, or carries on
+	 * until it finds one. Searches stay stopped until start is called
+	 */
+	public void stop()
+	{
+		stopped = true;
+	}
+
+	/**
+	 * Returns the highest valued move found so far by the current or last
+	 * search. Safe to call from another thread while the search is running
+	 * 
+	 * @return the best move so far, null if none has been found
+	 */
+	public Move getBestMove()
+	{
+		return bestMove;
+	}
+
+	/**
+	 * Returns how many rows and columns the current or last search has
+	 * finished, out of NO_OF_LINES
+	 * 
+	 * @return the number of lines searched
+	 */
+	public int getLinesSearched()
+	{
+		return linesSearched;
+	}
+
+	/**
+	 * Loads the current line and starts a search from each of its anchors
+	 * 
+	 * @param boardEmpty whether the board has no tiles on it
+	 */
+	private void searchLine(boolean boardEmpty)
+	{
+		loadLine(boardEmpty);
+
+		for (int anchor = 0; anchor < SIZE && !isStopped(); anchor++)
+		{
+			if (!anchors[anchor])
+				continue;
+
+			// Stop once time is up and there is a move to play
+			if (timeLimit > 0 && movesFound > 0
+					&& System.nanoTime() - deadline >= 0)
+			{
+				control.stopped = true;
+				return;
+			}
+
+			partialLength = 0;
+			partialBlanks = 0;
+
+			// If there are tiles just before the anchor, they must start the
+			// word
+			if (anchor > 0 && line[anchor - 1] != 0)
+			{
+				int start = anchor - 1;
+				while (start > 0 && line[start - 1] != 0)
+					start--;
+
+				int node = WordGraph.ROOT;
+				for (int square = start; square < anchor
+						&& node != WordGraph.NONE; square++)
+				{
+					node = graph.getChild(node, line[square] - 'A');
+					partial[partialLength++] = line[square];
+				}
+
+				if (node != WordGraph.NONE)
+					extendRight(node, anchor, anchor);
+			}
+
+			// Otherwise try every left part that fits in the empty squares
+			// before the anchor
+			else
+			{
+				int limit = 0;
+				while (anchor - limit > 0 && line[anchor - limit - 1] == 0
+						&& !anchors[anchor - limit - 1])
+					limit++;
+
+				leftPart(WordGraph.ROOT, Math.min(limit, tilesOnRack - 1),
+						anchor);
+			}
+		}
+	}
+
+	/**
+	 * Copies the letters, cross-checks, anchors and special squares of the
+	 * current line into arrays
+	 * 
+	 * @param boardEmpty whether the board has no tiles on it
+	 */
+	private void loadLine(boolean boardEmpty)
+	{
+		for (int square = 0; square < SIZE; square++)
+		{
+			int row = getRow(square);
+			int col = getCol(square);
+			char letter = overlay.getLetter(row, col);
+
+			letterMultipliers[square] = overlay.getLetterMultiplier(row, col);
+			wordMultipliers[square] = overlay.getWordMultiplier(row, col);
+
+			if (letter != 0)
+			{
+				line[square] = letter;
+				lineScores[square] = overlay.getTileScore(row, col);
+				anchors[square] = false;
+			}
+			else
+			{
+				line[square] = 0;
+				lineScores[square] = 0;
+				checks[square] = overlay.getCrossCheck(row, col, lineType);
+				crossScores[square] = overlay.getCrossScore(row, col, lineType);
+
+				// Empty squares next to a tile are anchors. On the first turn
+				// the only anchor is the centre square
+				if (boardEmpty)
+					anchors[square] = (row == CENTRE && col == CENTRE);
+				else
+					anchors[square] = hasNeighbour(row, col);
+			}
+		}
+	}
+
+	/**
+	 * Checks if a square has a letter above, below, left or right of it
+	 * 
+	 * @param row the row of the square
+	 * @param col the column of the square
+	 * @return true if the square touches a letter, false if not
+	 */
+	private boolean hasNeighbour(int row, int col)
+	{
+		return (row > 0 && !overlay.isEmpty(row - 1, col))
+				|| (row < SIZE - 1 && !overlay.isEmpty(row + 1, col))
+				|| (col > 0 && !overlay.isEmpty(row, col - 1))
+				|| (col < SIZE - 1 && !overlay.isEmpty(row, col + 1));
+	}
+
+	/**
+	 * Places every possible left part before the anchor using rack tiles and
+	 * then extends each one to the right through the anchor. A blank is
+	 * tried as each letter that can come next (see extendRight)
+	 * 
+	 * @param node the node reached by the left part so far
+	 * @param limit the number of empty squares still available on the left
+	 * @param anchor the index of the anchor square
+	 */
+	private void leftPart(int node, int limit, int anchor)
+	{
+		extendRight(node, anchor, anchor);
+
+		if (limit == 0)
+			return;
+
+		int edges = graph.getEdges(node);
+		while (edges != 0)
+		{
+			int letter = Integer.numberOfTrailingZeros(edges);
+			edges &= edges - 1;
+
+			int child = graph.getChild(node, letter);
+			if (rack[letter] > 0)
+			{
+				rack[letter]--;
+				partial[partialLength++] = (char) ('A' + letter);
+				leftPart(child, limit - 1, anchor);
+				partialLength--;
+				rack[letter]++;
+			}
+			if (blanksOnRack > 0 && (keepAllMoves || rack[letter] == 0))
+			{
+				blanksOnRack--;
+				partialBlanks |= 1 << partialLength;
+				partial[partialLength++] = (char) ('A' + letter);
+				leftPart(child, limit - 1, anchor);
+				partialLength--;
+				partialBlanks &= ~(1 << partialLength);
+				blanksOnRack++;
+			}
+		}
+	}
+
+	/**
+	 * Extends the word being built to the right, recording a move whenever a
+	 * word ends past the anchor
+	 * 
+	 * @param node the node reached by the word so far
+	 * @param square the index of the next square in the line
+	 * @param anchor the index of the anchor square
+	 */
+	private void extendRight(int node, int square, int anchor)
+	{
+		// If the square has a tile, the word must continue through it
+		if (square < SIZE && line[square] != 0)
+		{
+			int next = graph.getChild(node, line[square] - 'A');
+			if (next != WordGraph.NONE)
+			{
+				partial[partialLength++] = line[square];
+				extendRight(next, square + 1, anchor);
+				partialLength--;
+			}
+			return;
+		}
+
+		// The word can end here if a tile was placed on the anchor
+		if (square > anchor && partialLength > 1 && graph.isTerminal(node))
+			record(square);
+
+		if (square == SIZE)
+			return;
+
+		// Try each rack letter allowed on this square, and a blank as each
+		// of them. When only the best move is wanted, a blank only stands
+		// for a letter that has run out: keeping the blank is worth more than
+		// keeping the letter, and record puts the blanks on the best squares
+		int edges = graph.getEdges(node) & checks[square];
+		while (edges != 0)
+		{
+			int letter = Integer.numberOfTrailingZeros(edges);
+			edges &= edges - 1;
+
+			int child = graph.getChild(node, letter);
+			if (rack[letter] > 0)
+			{
+				rack[letter]--;
+				partial[partialLength++] = (char) ('A' + letter);
+				extendRight(child, square + 1, anchor);
+				partialLength--;
+				rack[letter]++;
+			}
+			if (blanksOnRack > 0 && (keepAllMoves || rack[letter] == 0))
+			{
+				blanksOnRack--;
+				partialBlanks |= 1 << partialLength;
+				partial[partialLength++] = (char) ('A' + letter);
+				extendRight(child, square + 1, anchor);
+				partialLength--;
+				partialBlanks &= ~(1 << partialLength);
+				blanksOnRack++;
+			}
+		}
+	}
+
+	/**
+	 * Scores the word that ends just before a square and adds it to the list
+	 * of moves
+	 * 
+	 * @param end the index of the square after the last letter
+	 */
+	private void record(int end)
+	{
+		int start = end - partialLength;
+
+		int blankTiles = partialBlanks;
+		if (!keepAllMoves && blankTiles != 0)
+			blankTiles = placeBlanks(start);
+
+		int wordScore = 0;
+		int multiplier = 1;
+		int crossTotal = 0;
+		int newTiles = 0;
+
+		for (int i = 0; i < partialLength; i++)
+		{
+			int square = start + i;
+
+			// Only new tiles count special squares, and blanks score nothing
+			if (line[square] == 0)
+			{
+				int letterScore = 0;
+				if ((blankTiles & (1 << i)) == 0)
+					letterScore = Tile.LETTER_VALUES[partial[i] - 'A']
+							* letterMultipliers[square];
+				wordScore += letterScore;
+				multiplier *= wordMultipliers[square];
+
+				// Add the word formed across this tile
+				if (crossScores[square] >= 0)
+					crossTotal += (crossScores[square] + letterScore)
+							* wordMultipliers[square];
+
+				newTiles |= 1 << i;
+			}
+			else
+				wordScore += lineScores[square];
+		}
+
+		// A single tile that makes a word both ways is found in its row and
+		// its column, so it is only kept as the word across
+		if (lineType == Word.VERTICAL_WORD && Integer.bitCount(newTiles) == 1
+				&& crossScores[start + Integer.numberOfTrailingZeros(newTiles)]
+						>= 0)
+			return;
+
+		int score = wordScore * multiplier + crossTotal;
+		if (Integer.bitCount(newTiles) == RACK_SIZE)
+			score += BINGO_BONUS;
+
+		movesFound++;
+
+		// The rack now holds just the tiles the move leaves
+		float leaveValue = 0;
+		if (leaves != null)
+		{
+			// Moves that can't win even with the best leave aren't looked up
+			if (!keepAllMoves && score + leaves.getMaxValue() <= bestValue)
+				return;
+			leaveValue = leaves.getValue(rack, blanksOnRack);
+		}
+
+		float value = score + leaveValue;
+		if (!keepAllMoves && value <= bestValue)
+			return;
+
+		char[] letters = new char[partialLength];
+		System.arraycopy(partial, 0, letters, 0, partialLength);
+
+		Move move = new Move(getRow(start), getCol(start), lineType, letters,
+				newTiles, blankTiles, score, leaveValue);
+		moves.add(move);
+
+		if (value > bestValue)
+		{
+			bestValue = value;
+			lineBest = move;
+		}
+	}
+
+	/**
+	 * Moves the blanks of the word being built onto the squares where they
+	 * lose the fewest points. A blank can swap with a new tile of the same
+	 * letter without changing the word or the leave
+	 * 
+	 * @param start the index of the square of the first letter
+	 * @return a bit mask of the letters of the word that are blanks
+	 */
+	private int placeBlanks(int start)
+	{
+		// Every new tile is counted in the main word with its multiplier
+		int multiplier = 1;
+		for (int i = 0; i < partialLength; i++)
+			if (line[start + i] == 0)
+				multiplier *= wordMultipliers[start + i];
+
+		int blankTiles = partialBlanks;
+		for (int i = 0; i < partialLength; i++)
+		{
+			if ((partialBlanks & (1 << i)) == 0)
+				continue;
+
+			// Find the cheapest square for the blank among the tiles of
+			// the same letter
+			int cheapest = i;
+			int cheapestLoss = blankLoss(start + i, multiplier);
+			for (int j = 0; j < partialLength; j++)
+			{
+				if (line[start + j] == 0 && partial[j] == partial[i]
+						&& (blankTiles & (1 << j)) == 0)
+				{
+					int loss = blankLoss(start + j, multiplier);
+					if (loss < cheapestLoss)
+					{
+						cheapest = j;
+						cheapestLoss = loss;
+					}
+				}
+			}
+			blankTiles = (blankTiles & ~(1 << i)) | (1 << cheapest);
+		}
+		return blankTiles;
+	}
+
+	/**
+	 * Returns how many times the value of its letter a tile on an empty
+	 * square counts for, which is what a blank on the square loses
+	 * 
+	 * @param square the index of the square in the line
+	 * @param multiplier the word multiplier of the main word
+	 * @return the number of times the letter value counts
+	 */
+	private int blankLoss(int square, int multiplier)
+	{
+		int wordsCounted = multiplier;
+		if (crossScores[square] >= 0)
+			wordsCounted += wordMultipliers[square];
+		return letterMultipliers[square] * wordsCounted;
+	}
+
+	/**
+	 * Returns the board row of a square in the current line
+	 * 
+	 * @param square the index of the square in the line
+	 * @return the row index
+	 */
+	private int getRow(int square)
+	{
+		if (lineType == Word.HORIZONTAL_WORD)
+			return lineIndex;
+		return square;
+	}
+
+	/**
+	 * Returns the board column of a square in the current line
+	 * 
+	 * @param square the index of the square in the line
+	 * @return the column index
+	 */
+	private int getCol(int square)
+	{
+		if (lineType == Word.HORIZONTAL_WORD)
+			return square;
+		return lineIndex;
+	}
+}
@@ -0,0 +1,513 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+
+/**
+ * Checks the move generator against a slow reference that finds every move
+ * the plain way. For every row and column, the reference tries every span of
+ * squares that doesn't touch a letter at either end, fills its empty squares
+ * with every arrangement of the rack (a blank as every letter) and keeps the
+ * fillings that spell a word, join up with the board and make only real
+ * words across. It then scores them straight from the special squares,
+ * without cross-checks or anchors. A single tile that makes a word both
+ * ways is one move, kept only as the word across. Parallel plays, hooks
+ * and words through several board tiles are all just spans to the
+ * reference, so it shows up any of them the generator misses. The positions are recorded from seeded
+ * hard-vs-hard games, each rack is also tried with two of its tiles made
+ * blanks, and any move found by only one of the two is printed:
+ * 
+ * java MoveGeneratorCheck [number of games]
+ * 
+ */
+public class MoveGeneratorCheck
+{
+	private static final long SEED = 2013;
+	private static final int SIZE = 15;
+	private static final int CENTRE = 7;
+	private static final int BINGO_BONUS = 50;
+	private static final int RACK_SIZE = 7;
+
+	// Only the first few differences in each position are printed
+	private static final int MAX_REPORTED = 10;
+
+	private Board board;
+	private WordGraph graph;
+
+	// The number of each letter on the rack, and the number of blanks
+	private int[] rack;
+	private int blanks;
+	private int tilesOnRack;
+
+	// The span being filled
+	private int type;
+	private int lineIndex;
+	private char[] letters;
+	private boolean[] newTiles;
+	private boolean[] blankTiles;
+
+	private ArrayList<String> found;
+
+	// Totals over all the positions checked
+	private int noOfPositions;
+	private long noOfMoves;
+	private int noOfDifferences;
+	private long generatorTime;
+	private long referenceTime;
+
+	/**
+	 * Constructs a checker with nothing checked yet
+	 */
+	public MoveGeneratorCheck()
+	{
+		rack = new int[26];
+		letters = new char[SIZE];
+		newTiles = new boolean[SIZE];
+		blankTiles = new boolean[SIZE];
+	}
+
+	/**
+	 * Checks the positions of a number of seeded games
+	 * 
+	 * @param args the number of games (optional)
+	 */
+	public static void main(String[] args)
+	{
+		int noOfGames = 5;
+		if (args.length > 0)
+			noOfGames = Integer.parseInt(args[0]);
+
+		MoveGeneratorCheck check = new MoveGeneratorCheck();
+		for (int game = 0; game < noOfGames; game++)
+			check.checkGame(SEED + game);
+
+		System.out.println("Checked " + check.noOfMoves + " moves in "
+				+ check.noOfPositions + " positions from " + noOfGames
+				+ " games");
+		System.out.printf(
+				"Generator %.1f ms, reference %.1f ms per position%n",
+				check.generatorTime / 1e6 / check.noOfPositions,
+				check.referenceTime / 1e6 / check.noOfPositions);
+		if (check.noOfDifferences == 0)
+			System.out.println("No differences");
+		else
+		{
+			System.out.println(check.noOfDifferences + " differences");
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Plays a seeded game between two hard players and checks the rack of the
+	 * player to move before every turn
+	 * 
+	 * @param seed the seed for shuffling the pile
+	 */
+	private void checkGame(long seed)
+	{
+		Pile deck = new Pile();
+		deck.shuffle(new Random(seed));
+		HeadlessGame game = new HeadlessGame(Player.HARD_COMPUTER,
+				Player.HARD_COMPUTER, deck);
+
+		while (!game.isGameOver())
+		{
+			board = game.getBoard();
+			graph = board.dictionary.getWordGraph();
+
+			int[] rackLetters = new int[26];
+			int rackBlanks = 0;
+			for (Tile tile : game.getCurrentPlayer().getRack())
+			{
+				if (tile.isBlank())
+					rackBlanks++;
+				else
+					rackLetters[tile.getChar() - 'A']++;
+			}
+			checkPosition(rackLetters, rackBlanks);
+
+			// Try the same rack with letters made blanks until it has two
+			for (int letter = 0; letter < 26; letter++)
+			{
+				while (rackLetters[letter] > 0 && rackBlanks < 2)
+				{
+					rackLetters[letter]--;
+					rackBlanks++;
+				}
+			}
+			checkPosition(rackLetters, rackBlanks);
+
+			game.playTurn();
+		}
+	}
+
+	/**
+	 * Finds the moves for a rack on the current board with both the
+	 * generator and the reference and prints any differences
+	 * 
+	 * @param rackLetters the number of each letter A to Z on the rack
+	 * @param rackBlanks the number of blanks on the rack
+	 */
+	private void checkPosition(int[] rackLetters, int rackBlanks)
+	{
+		long startTime = System.nanoTime();
+		ArrayList<String> generated = new ArrayList<String>();
+		for (Move move : new MoveGenerator(board).generate(rackLetters,
+				rackBlanks))
+			generated.add(describe(move));
+		generatorTime += System.nanoTime() - startTime;
+
+		startTime = System.nanoTime();
+		ArrayList<String> expected = findMoves(rackLetters, rackBlanks);
+		referenceTime += System.nanoTime() - startTime;
+
+		Collections.sort(generated);
+		Collections.sort(expected);
+		noOfPositions++;
+		noOfMoves += expected.size();
+
+		// Walk the two sorted lists together, so moves found twice show up
+		int reported = 0;
+		int nextGenerated = 0;
+		int nextExpected = 0;
+		while (nextGenerated < generated.size()
+				|| nextExpected < expected.size())
+		{
+			int order;
+			if (nextGenerated == generated.size())
+				order = 1;
+			else if (nextExpected == expected.size())
+				order = -1;
+			else
+				order = generated.get(nextGenerated).compareTo(
+						expected.get(nextExpected));
+
+			String difference = null;
+			if (order < 0)
+				difference = "extra   " + generated.get(nextGenerated++);
+			else if (order > 0)
+				difference = "missing " + expected.get(nextExpected++);
+			else
+			{
+				nextGenerated++;
+				nextExpected++;
+			}
+
+			if (difference != null)
+			{
+				noOfDifferences++;
+				if (reported++ < MAX_REPORTED)
+					System.out.println(difference);
+			}
+		}
+	}
+
+	/**
+	 * Describes a move found by the generator in the same form as the moves
+	 * of the reference
+	 * 
+	 * @param move the move to describe
+	 * @return the description of the move
+	 */
+	private static String describe(Move move)
+	{
+		StringBuilder description = new StringBuilder();
+		for (int i = 0; i < move.length(); i++)
+		{
+			char letter = move.getLetter(i);
+			if (move.isBlank(i))
+				description.append(Character.toLowerCase(letter));
+			else if (move.isNewTile(i))
+				description.append(letter);
+			else
+				description.append('(').append(letter).append(')');
+		}
+		return describe(move.getRow(), move.getCol(), move.getType(),
+				description.toString(), move.getScore());
+	}
+
+	/**
+	 * Describes a move by where it starts, its direction, its letters and its
+	 * score
+	 * 
+	 * @param row the row of the first letter
+	 * @param col the column of the first letter
+	 * @param type the alignment of the word
+	 * @param word the letters, with blanks in lower case and the letters
+	 *            already on the board in brackets
+	 * @param score the score of the move
+	 * @return the description of the move
+	 */
+	private static String describe(int row, int col, int type, String word,
+			int score)
+	{
+		String direction = "down";
+		if (type == Word.HORIZONTAL_WORD)
+			direction = "across";
+		return word + " at " + row + "," + col + " " + direction + " for "
+				+ score;
+	}
+
+	/**
+	 * Finds every legal move for a rack on the current board the plain way
+	 * 
+	 * @param rackLetters the number of each letter A to Z on the rack
+	 * @param rackBlanks the number of blanks on the rack
+	 * @return the descriptions of the moves
+	 */
+	public ArrayList<String> findMoves(int[] rackLetters, int rackBlanks)
+	{
+		System.arraycopy(rackLetters, 0, rack, 0, rack.length);
+		blanks = rackBlanks;
+		tilesOnRack = blanks;
+		for (int letter = 0; letter < rack.length; letter++)
+			tilesOnRack += rack[letter];
+
+		found = new ArrayList<String>();
+		int[] types = { Word.HORIZONTAL_WORD, Word.VERTICAL_WORD };
+		for (int nextType = 0; nextType < types.length; nextType++)
+		{
+			type = types[nextType];
+			for (lineIndex = 0; lineIndex < SIZE; lineIndex++)
+			{
+				for (int start = 0; start < SIZE - 1; start++)
+				{
+					// A word can't start just after a letter
+					if (start > 0 && !isEmpty(start - 1))
+						continue;
+
+					int empty = 0;
+					for (int end = start; end < SIZE; end++)
+					{
+						if (isEmpty(end))
+							empty++;
+						if (empty > tilesOnRack)
+							break;
+
+						// Nor can it end just before one
+						if (end > start && empty > 0
+								&& (end == SIZE - 1 || isEmpty(end + 1)))
+							fill(start, end, start, WordGraph.ROOT);
+					}
+				}
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Fills the empty squares of a span with rack tiles one square at a time,
+	 * keeping to the letters that can still start a word
+	 * 
+	 * @param start the first square of the span
+	 * @param end the last square of the span
+	 * @param square the next square to fill
+	 * @param node the node of the word graph reached so far
+	 */
+	private void fill(int start, int end, int square, int node)
+	{
+		if (square > end)
+		{
+			if (graph.isTerminal(node))
+				addMove(start, end);
+			return;
+		}
+
+		if (!isEmpty(square))
+		{
+			letters[square] = getLetter(square);
+			newTiles[square] = false;
+			blankTiles[square] = false;
+			int child = graph.getChild(node, letters[square] - 'A');
+			if (child != WordGraph.NONE)
+				fill(start, end, square + 1, child);
+			return;
+		}
+
+		for (int letter = 0; letter < 26; letter++)
+		{
+			int child = graph.getChild(node, letter);
+			if (child == WordGraph.NONE)
+				continue;
+
+			letters[square] = (char) ('A' + letter);
+			newTiles[square] = true;
+			if (rack[letter] > 0)
+			{
+				rack[letter]--;
+				blankTiles[square] = false;
+				fill(start, end, square + 1, child);
+				rack[letter]++;
+			}
+			if (blanks > 0)
+			{
+				blanks--;
+				blankTiles[square] = true;
+				fill(start, end, square + 1, child);
+				blanks++;
+			}
+		}
+	}
+
+	/**
+	 * Checks that a filled span joins up with the board and makes only real
+	 * words across, and if so scores it and adds it to the moves found
+	 * 
+	 * @param start the first square of the span
+	 * @param end the last square of the span
+	 */
+	private void addMove(int start, int end)
+	{
+		boolean joined = false;
+		int wordScore = 0;
+		int multiplier = 1;
+		int crossTotal = 0;
+		int noOfNewTiles = 0;
+		boolean crossed = false;
+		StringBuilder word = new StringBuilder();
+
+		for (int square = start; square <= end; square++)
+		{
+			int row = getRow(square);
+			int col = getCol(square);
+			if (!newTiles[square])
+			{
+				joined = true;
+				wordScore += board.getTileScore(row, col);
+				word.append('(').append(letters[square]).append(')');
+				continue;
+			}
+
+			int letterScore = 0;
+			if (!blankTiles[square])
+				letterScore = Tile.LETTER_VALUES[letters[square] - 'A']
+						* board.getLetterMultiplier(row, col);
+			wordScore += letterScore;
+			multiplier *= board.getWordMultiplier(row, col);
+			noOfNewTiles++;
+
+			if (blankTiles[square])
+				word.append(Character.toLowerCase(letters[square]));
+			else
+				word.append(letters[square]);
+
+			// The first move must cover the centre square
+			if (board.getNoOfTiles() == 0 && row == CENTRE && col == CENTRE)
+				joined = true;
+
+			// Read the word across the tile, if there is one
+			int rowStep = 1;
+			int colStep = 0;
+			if (type == Word.VERTICAL_WORD)
+			{
+				rowStep = 0;
+				colStep = 1;
+			}
+			int firstRow = row;
+			int firstCol = col;
+			while (isLetter(firstRow - rowStep, firstCol - colStep))
+			{
+				firstRow -= rowStep;
+				firstCol -= colStep;
+			}
+
+			StringBuilder crossWord = new StringBuilder();
+			int crossScore = 0;
+			int r = firstRow;
+			int c = firstCol;
+			while ((r == row && c == col) || isLetter(r, c))
+			{
+				if (r == row && c == col)
+					crossWord.append(letters[square]);
+				else
+				{
+					crossWord.append(board.getLetter(r, c));
+					crossScore += board.getTileScore(r, c);
+				}
+				r += rowStep;
+				c += colStep;
+			}
+
+			if (crossWord.length() > 1)
+			{
+				if (!board.dictionary.isWord(crossWord.toString()))
+					return;
+				crossTotal += (crossScore + letterScore)
+						* board.getWordMultiplier(row, col);
+				joined = true;
+				crossed = true;
+			}
+		}
+
+		// A single tile that makes a word both ways is only kept across
+		if (!joined || (type == Word.VERTICAL_WORD && noOfNewTiles == 1
+				&& crossed))
+			return;
+
+		int score = wordScore * multiplier + crossTotal;
+		if (noOfNewTiles == RACK_SIZE)
+			score += BINGO_BONUS;
+		found.add(describe(getRow(start), getCol(start), type,
+				word.toString(), score));
+	}
+
+	/**
+	 * Checks if a square of the current line is empty
+	 * 
+	 * @param square the index of the square in the line
+	 * @return true if the square is empty, false if not
+	 */
+	private boolean isEmpty(int square)
+	{
+		return board.isEmpty(getRow(square), getCol(square));
+	}
+
+	/**
+	 * Returns the letter on a square of the current line
+	 * 
+	 * @param square the index of the square in the line
+	 * @return the letter in upper case
+	 */
+	private char getLetter(int square)
+	{
+		return board.getLetter(getRow(square), getCol(square));
+	}
+
+	/**
+	 * Checks if a square is on the board and has a letter on it
+	 * 
+	 * @param row the row of the square
+	 * @param col the column of the square
+	 * @return true if there is a letter on the square, false if not
+	 */
+	private boolean isLetter(int row, int col)
+	{
+		return row >= 0 && row < SIZE && col >= 0 && col < SIZE
+				&& !board.isEmpty(row, col);
+	}
+
+	/**
+	 * Returns the board row of a square in the current line
+	 * 
+	 * @param square the index of the square in the line
+	 * @return the row index
+	 */
+	private int getRow(int square)
+	{
+		if (type == Word.HORIZONTAL_WORD)
+			return lineIndex;
+		return square;
+	}
+
+	/**
+	 * Returns the board column of a square in the current line
+	 * 
+	 * @param square the index of the square in the line
+	 * @return the column index
+	 */
+	private int getCol(int square)
+	{
+		if (type == Word.HORIZONTAL_WORD)
+			return square;
+		return lineIndex;
+	}
+}
@@ -1,3 +1,5 @@
+import java.util.Random;
+
 /**
  * Keeps track of a deck of Scrabble tiles and models deck behaviour
  * 
@@ -46,6 +48,96 @@ public class Pile
 		topTile = deck.length;
 	}
 
+	/**
+	 * Returns how many tiles of each kind a full deck has
+	 * 
+	 * @return the number of each letter A to Z, followed by the number of
+	 *         blanks
+	 */
+	public static int[] getDistribution()
+	{
+		return distribution.clone();
+	}
+
+	/**
+	 * Returns the tile at a given index in the deck, whether or not it has
+	 * been dealt
+	 * 
+	 * @param tileIndex the index of the tile
+	 * @return the tile
+	 */
+	public Tile getTile(int tileIndex)
+	{
+		return deck[tileIndex];
+	}
+
+	/**
+	 * Returns the face of each tile in the order of the deck. The letters A
+	 * to Z are 0 to 25 and a blank is 26
+	 * 
+	 * @return the face of each tile
+	 */
+	public byte[] getFaces()
+	{
+		byte[] faces = new byte[deck.length];
+		for (int tile = 0; tile < deck.length; tile++)
+			faces[tile] = (byte) faceOf(deck[tile]);
+		return faces;
+	}
+
+	/**
+	 * Puts the tiles of the deck in a given order, such as one saved from
+	 * another game, and sets how many are left to deal. Tiles with the same
+	 * face can't be told apart, so any tile of the right face is used for
+	 * each place
+	 * 
+	 * @param faces the face of each tile in the new order
+	 * @param tilesLeft the number of tiles left to deal
+	 * @throws IllegalArgumentException if the faces aren't a full deck
+	 */
+	public void arrange(byte[] faces, int tilesLeft)
+	{
+		if (faces.length != deck.length || tilesLeft < 0
+				|| tilesLeft > deck.length)
+			throw new IllegalArgumentException("Not a full deck");
+
+		// Sort the tiles by face
+		Tile[][] byFace = new Tile[distribution.length][];
+		int[] count = new int[distribution.length];
+		for (int face = 0; face < distribution.length; face++)
+			byFace[face] = new Tile[distribution[face]];
+		for (Tile tile : deck)
+		{
+			int face = faceOf(tile);
+			byFace[face][count[face]++] = tile;
+		}
+
+		// Deal them back out in the new order
+		for (int tile = 0; tile < faces.length; tile++)
+		{
+			int face = faces[tile];
+			if (face < 0 || face >= distribution.length || count[face] == 0)
+				throw new IllegalArgumentException("Not a full deck");
+			deck[tile] = byFace[face][--count[face]];
+		}
+
+		topTile = tilesLeft;
+	}
+
+	/**
+	 * Returns the face of a tile: the letters A to Z are 0 to 25 and a blank
+	 * is 26, whatever letter it has been set to
+	 * 
+	 * @param tile the tile
+	 * @return the face of the tile
+	 */
+	private static int faceOf(Tile tile)
+	{
+		if (tile.isBlank())
+			return distribution.length - 1;
+		return tile.getChar() - 'A';
+	}
+
 	/**
 	 * Returns the Pile information as a String of tiles, expressed as a
 	 * character and it's value
@@ -102,12 +194,24 @@ public class Pile
 	 * Precondition: All tiles have been returned to the Pile
 	 */
 	public void shuffle()
+	{
+		shuffle(new Random());
+	}
+
+	/**
+	 * Randomizes the position of Tiles in the Pile using a given random number
+	 * generator, so that a seeded generator always gives the same order
+	 * Precondition: All tiles have been returned to the Pile
+	 * 
+	 * @param random the random number generator to use
+	 */
+	public void shuffle(Random random)
 	{
 		// Randomly swap the positions of 2 elements
 		for (int nextTile = 0; nextTile < topTile; nextTile++)
 		{
 			// Randomize a new position for the next Tile
-			int newPos = (int) (Math.random() * topTile);
+			int newPos = random.nextInt(topTile);
 
 			// Swap the Tiles
 			Tile temp = deck[nextTile];
@@ -125,13 +229,17 @@ public class Pile
 	}
 
 	/**
-	 * Resets the sizes of all the tiles to large
+	 * Resets all the tiles for a new game: large, not locked into the board
+	 * and with blanks not set to a letter
 	 */
-	public void resetSizes()
+	public void resetTiles()
 	{
 		for (int tile = 0; tile < deck.length; tile++)
 		{
 			deck[tile].changeSize(1);
+			deck[tile].unlock();
+			if (deck[tile].isBlank())
+				deck[tile].reset();
 		}
 	}
 
@@ -1,11 +1,8 @@
-import java.awt.Point;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
-
-import javax.swing.JFrame;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * The class that is responsible for the players behavior, such as their rack
@@ -22,12 +19,21 @@ public class Player implements Comparable<Player>
 	int computerType;
 	Board board;
 	private ArrayList<Word> words;
-	private static HashSet<String> allWords;
-	private static ArrayList<Tile> playedTiles;
+	private ArrayList<Tile> playedTiles;
+	private MoveGenerator moveGenerator;
+	private Simulator simulator;
+	private Endgame endgame;
+	private boolean searchEndgame;
+	private int turnsLeft;
+	private volatile boolean playingEndgame;
+	private ForkJoinPool searchPool;
 	private int playerNo;
 
 	public static final int EASY_COMPUTER = 1;
 	public static final int HARD_COMPUTER = 2;
+	public static final int SIMULATING_COMPUTER = 3;
+
+	private static final int RACK_SIZE = 7;
 
 	/**
 	 * Constructs a human player with a given rack and number
@@ -57,6 +63,7 @@ public class Player implements Comparable<Player>
 	 * @param playerRack the rack of this CPU player
 	 * @param computerType the difficulty of this CPU player (easy/hard)
 	 * @param words the list of words on the board
+	 * @param playedTiles the list of tiles played on the board
 	 * @param playerNo the player no
 	 */
 	public Player(Board board, ArrayList<Tile> playerRack, int computerType,
@@ -73,9 +80,30 @@ public class Player implements Comparable<Player>
 		this.words = words;
 		this.computerType = computerType;
 
-		// Initialize the list of all words and the played tiles
-		allWords = new HashSet<String>();
-		Player.playedTiles = playedTiles;
+		// Initialize the move generator and the played tiles
+		moveGenerator = new MoveGenerator(board);
+		this.playedTiles = playedTiles;
+
+		// The hard and simulating computers also weigh the tiles they keep
+		if (computerType == HARD_COMPUTER
+				|| computerType == SIMULATING_COMPUTER)
+			moveGenerator.setLeaveTable(LeaveTable.getInstance());
+
+		// The simulating computer tries out its best moves against random
+		// replies
+		if (computerType == SIMULATING_COMPUTER)
+		{
+			simulator = new Simulator(board, playerNo);
+			simulator.setLeaveTable(LeaveTable.getInstance());
+		}
+
+		// Both play the end of the game out move by move
+		if (computerType == HARD_COMPUTER
+				|| computerType == SIMULATING_COMPUTER)
+		{
+			endgame = new Endgame(board);
+			searchEndgame = true;
+		}
 	}
 
 	/**
@@ -171,242 +199,16 @@ public class Player implements Comparable<Player>
 	}
 
 	/**
-	 * Adds all the unique variations of a given string recursively
-	 * 
-	 * @param str the string to find combinations for
-	 * @param indexOfLength the length of the string
-	 * @return
-	 */
-	public static HashSet<String> generateWords(StringBuilder str,
-			int indexOfLength)
-	{
-		// If the length is 0, return the string
-		if (indexOfLength <= 0)
-		{
-			allWords.add(str.toString());
-		}
-
-		else
-		{
-			// Recursively call this, placing all other chars at current first
-			// position
-			generateWords(str, indexOfLength - 1);
-			int currentPos = str.length() - indexOfLength;
-			for (int i = currentPos + 1; i < str.length(); i++)
-			{
-				// Swap all other chars with current first letter
-				swap(str, currentPos, i);
-				generateWords(str, indexOfLength - 1);
-				swap(str, i, currentPos);
-			}
-		}
-
-		return allWords;
-	}
-
-	/**
-	 * Swaps two letters in a StringBuilder
-	 * 
-	 * @param str the StringBuilder to swap characters in
-	 * @param first the index of the first letter to swap
-	 * @param second the index of the second letter to swap
-	 */
-	public static void swap(StringBuilder str, int first, int second)
-	{
-		// Check if it's trying to swap out of bounds
-		if (first < 0 || first >= str.length() || second < 0
-				|| second >= str.length())
-			return;
-
-		char temp = str.charAt(first);
-		str.setCharAt(first, str.charAt(second));
-		str.setCharAt(second, temp);
-	}
-
-	/**
-	 * Makes an easy move
+	 * Makes an easy move by playing the first legal move found
 	 * 
-	 * @param validWords the list of valid words
-	 * @return the Word which the CPU played
+	 * @param moves the list of legal moves
+	 * @return the move to play, null if there are none
 	 */
-	public Word makeEasyMove(HashSet<String> validWords)
+	public Move makeEasyMove(ArrayList<Move> moves)
 	{
-		for (String nextWord : validWords)
-		{
-			// Find where to place the next word (tiles that you're building off
-			// of)
-			ArrayList<Tile> tilesToUse = findMissingTiles(nextWord, rack);
-			for (Tile matchTile : tilesToUse)
-			{
-				int score = 0;
-				int matchRow = matchTile.getRow();
-				int matchCol = matchTile.getCol();
-
-				ArrayList<Tile> tileList = new ArrayList<Tile>();
-				int lettersBefore = nextWord.indexOf((matchTile.getChar()));
-				int lettersAfter = nextWord.length() - lettersBefore - 1;
-
-				int nextWordIndex = 0;
-
-				// Place the word around the matching letter vertically
-				int rowIndex = matchRow - lettersBefore;
-
-				while (board.rowIsValid(rowIndex)
-						&& rowIndex < matchRow + lettersAfter)
-				{
-					// Do not add a new tile for the tile on the board
-					if (rowIndex != matchRow)
-					{
-						// If the positions around the tile are
-						// empty
-						if (board.getBoard()[rowIndex][matchCol] == null)
-						{
-							// Add a tile to the board
-							Tile tileToAdd = getFromRack(nextWord
-									.charAt(nextWordIndex));
-							tileToAdd.setPos(rowIndex, matchCol);
-							board.getBoard()[rowIndex][matchCol] = tileToAdd;
-							tileList.add(tileToAdd);
-						}
-					}
-					nextWordIndex++;
-					rowIndex++;
-				}
-
-				// Check if the whole word was added successfully
-				if (tileList.size() == nextWord.length() - 1)
-				{
-					// If it was added successfully, add to tile lists
-					playedTiles.addAll(tileList);
-
-					tileList.add(matchTile);
-
-					// Create the new word to find the score of and add to board
-					Word newWord = board.isAligned(tileList);
-
-					tileList.remove(matchTile);
-
-					if (newWord != null)
-					{
-
-						score = board.getTotalScore(newWord, tileList);
-
-						// If the surrounding words are valid, return
-						if (score > 0)
-						{
-							newWord.setScore(score);
-							return newWord;
-						}
-					}
-				}
-
-				// If the word was not added successfully
-				// Remove leftover tiles from the board
-				if (tileList.size() > 0)
-				{
-					board.remove(tileList);
-					playedTiles.removeAll(tileList);
-
-					// Reset their locations back to rack
-					rack.addAll(tileList);
-					for (Tile next : tileList)
-					{
-						Point tileLocation = ScrabbleMain.findNextSpot(rack);
-						if (tileLocation != null)
-						{
-							next.setLocation(tileLocation);
-						}
-					}
-					tileList.clear();
-				}
-
-				// Reset the string index
-				nextWordIndex = 0;
-				score = 0;
-
-				// Try placing the word around the matching letter
-				// horizontally
-				int colIndex = matchCol - lettersBefore;
-				while (board.colIsValid(colIndex)
-						&& colIndex < matchCol + lettersAfter)
-				{
-
-					// Do not add a new tile for the tile you're building around
-					// on the board
-					if (colIndex != matchCol)
-					{
-						// If the positions around the tile are
-						// empty
-						if (board.getBoard()[matchRow][colIndex] == null)
-						{
-							// Add a tile to the board
-							Tile tileToAdd = getFromRack(nextWord
-									.charAt(nextWordIndex));
-							tileToAdd.setPos(matchRow, colIndex);
-							board.getBoard()[matchRow][colIndex] = tileToAdd;
-							tileList.add(tileToAdd);
-						}
-
-					}
-
-					nextWordIndex++;
-					colIndex++;
-				}
-
-				// Check if the whole word was added successfully
-				if (tileList.size() == nextWord.length() - 1)
-				{
-
-					// If it was added successfully, add to tile lists
-					playedTiles.addAll(tileList);
-
-					tileList.add(matchTile);
-
-					// Create the new word to find the score of and add to board
-					Word newWord = board.isAligned(tileList);
-
-					tileList.remove(matchTile);
-
-					if (newWord != null)
-					{
-
-						score = board.getTotalScore(newWord, tileList);
-
-						// If the surrounding words are valid, return
-						if (score > 0)
-						{
-							newWord.setScore(score);
-							return newWord;
-						}
-					}
-				}
-
-				// If the word was not added successfully
-				// Remove leftover tiles from the board
-				if (tileList.size() > 0)
-				{
-					board.remove(tileList);
-					playedTiles.removeAll(tileList);
-
-					// Reset their locations back to rack
-					rack.addAll(tileList);
-
-					for (Tile next : tileList)
-					{
-						Point tileLocation = ScrabbleMain.findNextSpot(rack);
-						if (tileLocation != null)
-						{
-							next.setLocation(tileLocation);
-						}
-
-					}
-					tileList.clear();
-				}
-			}
-		}
-
-		// If a word could not be placed
-		return null;
+		if (moves.isEmpty())
+			return null;
+		return moves.get(0);
 	}
 
 	/**
@@ -432,564 +234,290 @@ public class Player implements Comparable<Player>
 	}
 
 	/**
-	 * Returns an arrayList of the possible tiles on the board needed by the
-	 * word that the computer is placing
+	 * Makes a move for the CPU player
 	 * 
-	 * @param str the word being placed
-	 * @param rack the computer's rack of tiles
-	 * @return an arrayList of the possible tiles on the board needed by the
-	 *         word that the computer is placing
+	 * @return the word that was played
 	 */
-	public ArrayList<Tile> findMissingTiles(String str, ArrayList<Tile> rack)
+	public Word makeMove()
 	{
-		ArrayList<Tile> missingTiles = new ArrayList<Tile>();
-		char missingLetter = ' ';
+		Move move = findMove();
 
-		// Create a tally of all the letters in the word needed
-		int[] letterTally = new int[26];
+		// If no move could be made return null
+		if (move == null)
+			return null;
 
-		for (int i = 0; i < str.length(); i++)
-		{
-			letterTally[str.charAt(i) - 'A']++;
-		}
+		return play(move);
+	}
 
-		// Subtract all the letters that the rack has
-		for (Tile rackTile : rack)
+	/**
+	 * Chooses a move for the CPU player without changing the board or the
+	 * rack, so it can be run off the Swing thread. If the search is stopped
+	 * early the move is chosen from the moves found so far
+	 * 
+	 * @return the move to play, null to pass
+	 */
+	public Move findMove()
+	{
+		// Clear the stop from the last move here and only here, so a stop
+		// that comes in at any point of this one stops every stage of it
+		moveGenerator.start();
+		if (simulator != null)
+			simulator.start();
+		if (endgame != null)
+			endgame.start();
+
+		// Once the pile is empty the unseen tiles are the other player's
+		// rack, so the endgame can be searched
+		if (searchEndgame)
 		{
-			letterTally[rackTile.getChar() - 'A']--;
+			int[] unseen = board.countUnseen(rack);
+			int noOfUnseen = 0;
+			for (int type = 0; type < unseen.length; type++)
+				noOfUnseen += unseen[type];
+
+			if (noOfUnseen <= RACK_SIZE)
+			{
+				// Even a stopped endgame search finishes looking one turn
+				// ahead, so its move is always played
+				playingEndgame = true;
+				Move move = endgame.solve(rack, unseen, turnsLeft);
+				playingEndgame = false;
+				return move;
+			}
 		}
 
-		// Go through the tally and find the letter that has 1, which is the
-		// one that the rack that does not have
-		for (int i = 0; i < letterTally.length; i++)
+		// With a pool, the hard computer searches the board in parallel and
+		// only keeps the best move
+		if (computerType == HARD_COMPUTER && searchPool != null)
+			return moveGenerator.findBestMove(rack, searchPool);
+
+		// The simulating computer rolls out its best moves on the pool
+		if (computerType == SIMULATING_COMPUTER)
 		{
-			if (letterTally[i] == 1)
-				missingLetter = (char) ('A' + i);
+			return simulator.chooseMove(moveGenerator.generate(rack), rack,
+					searchPool);
 		}
 
-		// // Find the letter needed by the word
-		// for (int i = 0; i < str.length(); i++)
-		// {
-		// boolean letterFound = false;
-		// for (Tile rackTile : rack)
-		// {
-		// if (str.charAt(i) == rackTile.getChar())
-		// letterFound = true;
-		// }
-		// if (!letterFound)
-		// missingLetter = str.charAt(i);
-		// }
-
-		// If there were no letters missing, we can use any one letter in the
-		// word that's on the board
-		ArrayList<Character> missingLetters = new ArrayList<Character>();
-		if (missingLetter == ' ')
+		// Find every legal move for the rack
+		ArrayList<Move> moves = moveGenerator.generate(rack);
+		Move move = null;
+
+		// If the computer is easy, make an easy move
+		if (computerType == EASY_COMPUTER)
 		{
-			for (int i = 0; i < str.length(); i++)
-				missingLetters.add(str.charAt(i));
+			move = makeEasyMove(moves);
 		}
-		else
-			missingLetters.add(missingLetter);
 
-		// Go through the tiles on the board and add tiles that are that letter
-		// to the missing tiles
-		for (Tile next : playedTiles)
+		// If the computer is hard, make a hard move
+		else if (computerType == HARD_COMPUTER)
 		{
-			for (char missing : missingLetters)
-				if (next.getChar() == missing)
-					missingTiles.add(next);
+			move = makeHardMove(moves);
 		}
 
-		return missingTiles;
+		return move;
 	}
 
 	/**
-	 * Finds all of the possible words with the rack and a given character
+	 * Sets how long the hard or simulating CPU player may take over each
+	 * move. When time runs out the hard player plays the best move found so
+	 * far, and the simulating player the move with the best equity so far.
+	 * The endgame search stops at the same time if it has not reached its
+	 * node limit first. The easy CPU player always plays the first move it
+	 * finds, so it has no time budget
 	 * 
-	 * @param letter the given character
-	 * @return all of the possible words with the rack and a given character
+	 * @param millis the time budget in milliseconds, 0 for no limit
 	 */
-	public ArrayList<String> getMoves(char letter)
+	public void setTimeBudget(int millis)
 	{
-		StringBuilder str = new StringBuilder();
-		StringBuilder checkStr = new StringBuilder();
-		int size = rack.size() + 1;
-
-		// Go through the whole word
-		if (letter == ' ')
-			size--;
-
-		else
-			str.append(letter);
-
-		for (Tile tile : rack)
-		{
-			if (!tile.isBlank())
-				str.append(tile.getChar());
-			else
-			{
-				str.append("S");
-				tile.set('S');
-			}
-		}
-
-		allWords.addAll(generateWords(str, size));
-
-		// Finds all possible words with the length of the rack - 1,
-		// usually 7
-		// Remove from 1 as you can only remove characters from the rack,
-		// not the board
-		for (int remove = 1; remove < size; remove++)
-		{
-			char currentChar = str.charAt(remove);
-			str.deleteCharAt(remove);
-			generateWords(str, size - 1);
-			str.insert(remove, currentChar);
-		}
-
-		// Finds all possible words with 2 letters taken out from the
-		// combination (6 letter words)
-		for (int i = 1; i < size - 1; i++)
-			for (int j = i + 1; j < size; j++)
-			{
-				checkStr.append(str.substring(0, i));
-				checkStr.append(str.substring(i + 1, j));
-				checkStr.append(str.substring(j + 1));
-				generateWords(checkStr, size - 2);
-				clear(checkStr);
-			}
-
-		// Finds all the possible words with 3 letters taken out from
-		// the combination (5 letter words)
-		for (int i = 1; i < size - 2; i++)
-			for (int j = i + 1; j < size - 1; j++)
-				for (int k = j + 1; k < size; k++)
-				{
-					checkStr.append(str.substring(0, i));
-					checkStr.append(str.substring(i + 1, j));
-					checkStr.append(str.substring(j + 1, k));
-					checkStr.append(str.substring(k + 1));
-					generateWords(checkStr, size - 3);
-					clear(checkStr);
-				}
-
-		// Finds all the possible 4 letter words
-		for (int i = 1; i < size - 3; i++)
-			for (int j = i + 1; j < size - 2; j++)
-				for (int k = j + 1; k < size - 1; k++)
-					for (int l = k + 1; l < size; l++)
-					{
-						checkStr.append(str.substring(0, i));
-						checkStr.append(str.substring(i + 1, j));
-						checkStr.append(str.substring(j + 1, k));
-						checkStr.append(str.substring(k + 1, l));
-						checkStr.append(str.substring(l));
-
-						generateWords(checkStr, size - 4);
-						clear(checkStr);
-					}
-
-		// Finds all the possible 3 letter words
-		for (int i = 1; i < size - 2; i++)
-			for (int j = i + 1; j < size - 1; j++)
-				for (int k = j + 1; k < size; k++)
-				{
-					checkStr.append(str.substring(0, i));
-					checkStr.append(str.substring(i + 1, j));
-					checkStr.append(str.substring(k + 1));
-					generateWords(checkStr, size - 5);
-					clear(checkStr);
-				}
-
-		// Find all possible 2 letter words
-		for (int i = 1; i < size - 1; i++)
-			for (int j = i + 1; j < size; j++)
-			{
-				checkStr.append(str.charAt(i));
-				checkStr.append(str.charAt(j));
-				generateWords(checkStr, size - 6);
-				clear(checkStr);
-			}
+		if (computerType == HARD_COMPUTER)
+			moveGenerator.setTimeLimit(millis);
+		else if (computerType == SIMULATING_COMPUTER)
+			simulator.setTimeLimit(millis);
+		if (endgame != null)
+			endgame.setTimeLimit(millis);
+	}
 
-		// Find the score of all the valid words that are found
-		ArrayList<String> validWords = new ArrayList<String>();
-		for (String nextWord : allWords)
-		{
-			// Check if the words generated are valid
-			if (board.dictionary.isWord(nextWord))
-				validWords.add(nextWord);
-		}
+	/**
+	 * Sets the most positions the hard or simulating CPU player's endgame
+	 * search may look at for each move. Without a time budget the search
+	 * then always chooses the same move for the same endgame
+	 * 
+	 * @param nodes the node limit, 0 to play the end of the game like the
+	 *            rest of it without searching ahead
+	 */
+	public void setEndgameLimit(int nodes)
+	{
+		if (endgame == null)
+			return;
 
-		allWords.clear();
+		searchEndgame = (nodes > 0);
+		if (searchEndgame)
+			endgame.setNodeLimit(nodes);
+	}
 
-		return validWords;
+	/**
+	 * Tells the hard or simulating CPU player's endgame search when the game
+	 * ends before its last turn
+	 * 
+	 * @param playOutEnds whether the game ends when a player uses up their
+	 *            tiles
+	 * @param passesToEnd the number of passes in a row that end the game, 0
+	 *            if passes never end it
+	 */
+	public void setEndgameRules(boolean playOutEnds, int passesToEnd)
+	{
+		if (endgame != null)
+			endgame.setRules(playOutEnds, passesToEnd);
 	}
 
 	/**
-	 * Clears a StringBuilder
+	 * Tells the CPU player how many turns are left in the game once the pile
+	 * is empty, so its endgame search knows how far ahead to look
 	 * 
-	 * @param str the StringBuilder to clear
+	 * @param turnsLeft the most turns left counting this one, 0 if not known
 	 */
-	private void clear(StringBuilder str)
+	public void setTurnsLeft(int turnsLeft)
 	{
-		for (int i = str.length() - 1; i >= 0; i--)
-			str.deleteCharAt(i);
+		this.turnsLeft = turnsLeft;
 	}
 
 	/**
-	 * Makes a move for the CPU player
+	 * Makes the CPU player remember the moves it finds for each position in
+	 * a cache, so positions that come up again are not searched again
 	 * 
-	 * @return the word that was played
+	 * @param cache the cache to use, null for none
 	 */
-	public Word makeMove()
+	public void setMoveCache(MoveCache cache)
 	{
-		// Create a set to store valid words in
-		HashSet<String> validWords = new HashSet<String>();
+		moveGenerator.setCache(cache);
+	}
 
-		// If it's the first turn
-		if (playedTiles.isEmpty())
-		{
-			// Generate valid words with just the letters on the rack
-			validWords.addAll(getMoves(' '));
+	/**
+	 * Sets the leave values the CPU player adds to the score of each move
+	 * 
+	 * @param leaves the leave values to use, null to go by score alone
+	 */
+	public void setLeaveTable(LeaveTable leaves)
+	{
+		moveGenerator.setLeaveTable(leaves);
+	}
 
-			// Play the first possible valid word
-			ArrayList<Tile> tiles = new ArrayList<Tile>();
-			for (String nextWord : validWords)
-			{
-				for (int i = 0; i < nextWord.length(); i++)
-				{
-					Tile nextTile = getFromRack(nextWord.charAt(i));
-					nextTile.setPos(7, 7 + i);
-					tiles.add(nextTile);
-				}
+	/**
+	 * Lets the hard CPU player search for its move on a pool of threads,
+	 * splitting the rows and columns of the board between them. The
+	 * simulating CPU player runs its rollouts on the pool
+	 * 
+	 * @param pool the pool to search on, null to search on the calling
+	 *            thread
+	 */
+	public void setSearchPool(ForkJoinPool pool)
+	{
+		searchPool = pool;
+	}
 
-				Word newWord = new Word(tiles, Word.HORIZONTAL_WORD);
-				newWord.setScore (board.getScore (newWord, tiles));
-				playedTiles.addAll(tiles);
-				return newWord;
-			}
-		}
+	/**
+	 * Stops a search started by findMove on another thread so that it
+	 * returns straight away with the moves found so far
+	 */
+	public void stopSearch()
+	{
+		moveGenerator.stop();
+		if (simulator != null)
+			simulator.stop();
+		if (endgame != null)
+			endgame.stop();
+	}
 
-		// Else if it's not the first turn
-		else
-		{
-			// Generate all valid words
-			for (Tile playedTile : playedTiles)
-			{
-				validWords.addAll(getMoves(playedTile.getChar()));
-			}
-		}
+	/**
+	 * Returns the best move found so far by a running search
+	 * 
+	 * @return the best move so far, null if none has been found
+	 */
+	public Move getBestMoveSoFar()
+	{
+		if (playingEndgame)
+			return endgame.getBestMove();
+		if (simulator != null && simulator.getBestMove() != null)
+			return simulator.getBestMove();
+		return moveGenerator.getBestMove();
+	}
 
-		// If the computer is easy, make an easy move
-		if (computerType == EASY_COMPUTER)
+	/**
+	 * Returns how far a running search has got
+	 * 
+	 * @return the percentage of the board searched, or of the simulation
+	 *         run
+	 */
+	public int getSearchProgress()
+	{
+		if (playingEndgame)
 		{
-			return makeEasyMove(validWords);
+			int turns = Endgame.MAX_TURNS;
+			if (turnsLeft > 0)
+				turns = Math.min(turnsLeft, turns);
+			return 100 * endgame.getDepthSearched() / turns;
 		}
+		if (simulator != null)
+			return simulator.getProgress();
+		return 100 * moveGenerator.getLinesSearched()
+				/ MoveGenerator.NO_OF_LINES;
+	}
 
-		// If the computer is hard, make a hard move
-		else if (computerType == HARD_COMPUTER)
+	/**
+	 * Makes a hard move by playing the legal move with the highest score
+	 * plus leave value
+	 * 
+	 * @param moves the list of legal moves
+	 * @return the move to play, null if there are none
+	 */
+	public Move makeHardMove(ArrayList<Move> moves)
+	{
+		Move bestMove = null;
+		for (Move nextMove : moves)
 		{
-			return makeHardMove(validWords);
+			if (bestMove == null || nextMove.getValue() > bestMove.getValue())
+				bestMove = nextMove;
 		}
-
-		// If no move could be made return null
-		return null;
+		return bestMove;
 	}
 
 	/**
-	 * Makes a hard move
+	 * Places the tiles of a move from the rack onto the board. Must be called
+	 * on the thread that owns the board
 	 * 
-	 * @param validWords the list of possible words to play
-	 * @return the word played
+	 * @param move the move to play
+	 * @return the word that was played
 	 */
-	public Word makeHardMove(HashSet<String> validWords)
+	public Word play(Move move)
 	{
-		// Store the best word found and where to build off the word
-		// (missingTile)
-		String bestStr = null;
-		int bestScore = 0;
-		Tile missingTile = null;
-		char missingLetter = ' ';
-		int tilesToAdd = -1;
-		int indexOfMissing = -1;
-		int bestWordType = 0;
-		int bestWordRow = -1;
-		int bestWordCol = -1;
-
-		for (String nextWord : validWords)
+		ArrayList<Tile> wordTiles = new ArrayList<Tile>();
+		for (int i = 0; i < move.length(); i++)
 		{
-			// Find where to place the next word (tiles that you're building off
-			// of)
-			ArrayList<Tile> tilesToUse = findMissingTiles(nextWord, rack);
-			for (Tile matchTile : tilesToUse)
-			{
-				int score = 0;
-				int matchRow = matchTile.getRow();
-				int matchCol = matchTile.getCol();
-
-				ArrayList<Tile> tileList = new ArrayList<Tile>();
-				int lettersBefore = nextWord.indexOf((matchTile.getChar()));
-				int lettersAfter = nextWord.length() - lettersBefore - 1;
-
-				int nextWordIndex = 0;
-
-				System.out.println("Rack: " + rack);
-				System.out.println("nextWord: " + nextWord);
-				System.out.println("matchTile: " + matchTile);
-
-				// Place the word around the matching letter vertically
-				int rowIndex = matchRow - lettersBefore;
-
-				while (board.rowIsValid(rowIndex)
-						&& rowIndex <= matchRow + lettersAfter)
-				{
-					// Do not add a new tile for the tile on the board
-					if (rowIndex != matchRow)
-					{
-						// If the positions around the tile are
-						// empty
-						if (board.getBoard()[rowIndex][matchCol] == null)
-						{
-							// Add a tile to the board
-							Tile tileToAdd = getFromRack(nextWord
-									.charAt(nextWordIndex));
-							tileToAdd.setPos(rowIndex, matchCol);
-							board.getBoard()[rowIndex][matchCol] = tileToAdd;
-							tileList.add(tileToAdd);
-						}
-					}
-
-					nextWordIndex++;
-					rowIndex++;
-				}
-
-				// Check if the whole word was added successfully
-				if (tileList.size() == nextWord.length() - 1)
-				{
-					// If it was added successfully, add to tile lists
-					tileList.add(matchTile);
-
-					// Create the new word to find the score of and add to board
-					Word newWord = board.isAligned(tileList);
-
-					tileList.remove(matchTile);
-
-					if (newWord != null)
-					{
-						score = board.getTotalScore(newWord, tileList);
-
-						// If this word beats the best word, store the word
-						if (score > bestScore)
-						{
-							bestScore = score;
-							bestStr = newWord.toString();
-							missingTile = matchTile;
-							missingLetter = missingTile.getChar();
-							tilesToAdd = tileList.size();
-							indexOfMissing = lettersBefore;
-							bestWordType = newWord.getType();
-							bestWordRow = newWord.getTile(0).getRow();
-							bestWordCol = newWord.getTile(0).getCol();
-						}
-					}
-				}
-
-				// Remove leftover tiles from the board
-				if (tileList.size() > 0)
-				{
-					board.remove(tileList);
-
-					// Reset their locations back to rack
-					rack.addAll(tileList);
-					for (Tile next : tileList)
-					{
-						Point tileLocation = ScrabbleMain.findNextSpot(rack);
-						if (tileLocation != null)
-						{
-							next.setLocation(tileLocation);
-						}
-					}
-					tileList.clear();
-				}
-
-				// Reset the string index
-				nextWordIndex = 0;
-				score = 0;
-
-				// Try placing the word around the matching letter
-				// horizontally
-				int colIndex = matchCol - lettersBefore;
-				while (board.colIsValid(colIndex)
-						&& colIndex <= matchCol + lettersAfter)
-				{
-
-					// Do not add a new tile for the tile you're building around
-					// on the board
-					if (colIndex != matchCol)
-					{
-						// If the positions around the tile are
-						// empty
-						if (board.getBoard()[matchRow][colIndex] == null)
-						{
-							// Add a tile to the board
-							Tile tileToAdd = getFromRack(nextWord
-									.charAt(nextWordIndex));
-							tileToAdd.setPos(matchRow, colIndex);
-							board.getBoard()[matchRow][colIndex] = tileToAdd;
-							tileList.add(tileToAdd);
-						}
-
-					}
-
-					nextWordIndex++;
-					colIndex++;
-				}
+			int row = move.getRow(i);
+			int col = move.getCol(i);
 
-				// Check if the whole word was added successfully
-				if (tileList.size() == nextWord.length() - 1)
-				{
-
-					// If it was added successfully, add to tile lists
-					tileList.add(matchTile);
-
-					// Create the new word to find the score of and add to board
-					Word newWord = board.isAligned(tileList);
-
-					tileList.remove(matchTile);
-
-					if (newWord != null)
-					{
-
-						score = board.getTotalScore(newWord, tileList);
-
-						// If the score of this word beats the previous best
-						// score, then store the word
-						if (score > bestScore)
-						{
-							bestScore = score;
-							bestStr = newWord.toString();
-							missingTile = matchTile;
-							missingLetter = missingTile.getChar();
-							tilesToAdd = tileList.size();
-							indexOfMissing = lettersBefore;
-							bestWordType = newWord.getType();
-							bestWordRow = newWord.getTile(0).getRow();
-							bestWordCol = newWord.getTile(0).getCol();
-						}
-					}
-				}
-
-				// Remove leftover tiles from the board
-				if (tileList.size() > 0)
-				{
-					board.remove(tileList);
-
-					// Reset their locations back to rack
-					rack.addAll(tileList);
-
-					for (Tile next : tileList)
-					{
-						Point tileLocation = ScrabbleMain.findNextSpot(rack);
-						if (tileLocation != null)
-						{
-							next.setLocation(tileLocation);
-						}
-
-					}
-					tileList.clear();
-				}
-			}
-		}
-
-		// Play the best word found
-		if (bestStr != null)
-		{
-			System.out.println("Final best word: " + bestStr);
-			System.out.println("Word score: " + bestScore);
-			System.out.println("Missing letter: " + missingLetter);
-			System.out.println("Rack: " + rack);
-			System.out.println("Index of missing: " + indexOfMissing);
-			System.out.println("Comparison: " + bestStr.length() + " "
-					+ tilesToAdd);
-
-			ArrayList<Tile> bestTiles = new ArrayList<Tile>();
-
-			// Find all the tiles of the word
-			for (int i = 0; i < bestStr.length(); i++)
+			// Take new tiles off the rack and put them on the board
+			if (move.isNewTile(i))
 			{
-				if (i != indexOfMissing)
+				char letter = move.getLetter(i);
+				Tile tileToAdd;
+				if (move.isBlank(i))
 				{
-					Tile tileToAdd = getFromRack(bestStr.charAt(i));
-					bestTiles.add(tileToAdd);
+					// A blank on the rack has no letter until it is played
+					tileToAdd = getFromRack(' ');
+					tileToAdd.set(letter);
 				}
 				else
-					bestTiles.add(missingTile);
-			}
-
-			// Add the best word to the board
-			int i = 0;
-
-			// If the word is horizontal, start from the row and column of the
-			// first tile of the best word and add the word to the right
-			if (bestWordType == Word.HORIZONTAL_WORD)
-			{
-				for (int col = bestWordCol; col < bestWordCol
-						+ bestStr.length(); col++)
-				{
-					if (col - bestWordCol != indexOfMissing)
-					{
-						Tile nextTile = bestTiles.get(i);
-
-						if (nextTile != null)
-						{
-							board.getBoard()[bestWordRow][col] = nextTile;
-							nextTile.setPos(bestWordRow, col);
-						}
-						else
-							bestTiles
-									.set(i, board.getBoard()[bestWordRow][col]);
-
-					}
-					i++;
-				}
-			}
-
-			// If the word is vertical, start from the row and column of the
-			// first tile of the best word and add the word going down
-			else
-			{
-				for (int row = bestWordRow; row < bestWordRow
-						+ bestStr.length(); row++)
-				{
-					if (row - bestWordRow != indexOfMissing)
-					{
-						Tile nextTile = bestTiles.get(i);
-
-						if (nextTile != null)
-						{
-							board.getBoard()[row][bestWordCol] = nextTile;
-							nextTile.setPos(row, bestWordCol);
-						}
-						else
-							bestTiles
-									.set(i, board.getBoard()[row][bestWordCol]);
-
-					}
-					i++;
-				}
+					tileToAdd = getFromRack(letter);
+				tileToAdd.setPos(row, col);
+				board.place(tileToAdd, row, col);
+				playedTiles.add(tileToAdd);
 			}
-
-			Word wordToPlay = new Word(bestTiles, bestWordType);
-			wordToPlay.setScore(bestScore);
-
-			System.out.println("Word to play: " + wordToPlay);
-
-			// Add the best Word to the lists
-			playedTiles.addAll(bestTiles);
-
-			return wordToPlay;
+			wordTiles.add(board.getBoard()[row][col]);
 		}
 
-		return null;
+		Word wordToPlay = new Word(wordTiles, move.getType());
+		wordToPlay.setScore(move.getScore());
+		return wordToPlay;
 	}
 }
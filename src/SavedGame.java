@@ -0,0 +1,251 @@
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Everything needed to carry on a game from where it was left: the order of
+ * the pile, where each tile dealt from it is, the scores and the turn
+ * counters. A saved game is a few hundred bytes and is written to a new file
+ * that then replaces the old one, so a game can be saved after every turn
+ * and a crash while saving never leaves a half-written save behind
+ * 
+ */
+public class SavedGame
+{
+	public static final String SAVE_FILE = "savedGame.dat";
+
+	public static final int NO_OF_TILES = 100;
+	public static final int RACK_SIZE = 7;
+
+	// Where a tile dealt from the pile can be
+	public static final byte ON_BOARD = 0;
+	public static final byte PLAYED_THIS_TURN = 1;
+	public static final byte ON_RACK_ONE = 2;
+	public static final byte ON_RACK_TWO = 3;
+
+	// The spot of a tile on a rack that should go in the first free spot
+	public static final int ANY_SPOT = 255;
+
+	// The header of a save file
+	private static final int MAGIC = 0x53415645;
+	private static final int VERSION = 1;
+
+	// The header, the game details and the face of every tile, before the
+	// details of the dealt tiles
+	private static final int FIXED_SIZE = 37 + NO_OF_TILES;
+	private static final int DEALT_TILE_SIZE = 3;
+
+	private static final int NO_OF_SQUARES = 15 * 15;
+
+	// The game details
+	int computerType;
+	int currentPlayer;
+	int[] scores;
+	int noOfTurns;
+	int turnsLeft;
+	boolean countdownStarted;
+
+	// The face of each tile in the order of the pile (A to Z are 0 to 25
+	// and a blank is 26) and the number of tiles left to deal
+	byte[] faces;
+	int tilesLeft;
+
+	// For each tile that has been dealt, where it is, its square on the
+	// board (row * 15 + column) or spot on the rack, and the letter a blank
+	// is set to (a space if it isn't)
+	byte[] places;
+	int[] spots;
+	char[] letters;
+
+	/**
+	 * Constructs an empty saved game to be filled in
+	 */
+	public SavedGame()
+	{
+		scores = new int[2];
+		faces = new byte[NO_OF_TILES];
+		places = new byte[NO_OF_TILES];
+		spots = new int[NO_OF_TILES];
+		letters = new char[NO_OF_TILES];
+	}
+
+	/**
+	 * Writes this game to a file, replacing the file only once the whole
+	 * game has been written
+	 * 
+	 * @param fileName the name of the file
+	 * @throws IOException if the game could not be written
+	 */
+	public void write(String fileName) throws IOException
+	{
+		ByteBuffer buffer = ByteBuffer.allocate(FIXED_SIZE
+				+ (NO_OF_TILES - tilesLeft) * DEALT_TILE_SIZE);
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+		buffer.putInt(computerType);
+		buffer.putInt(currentPlayer);
+		buffer.putInt(scores[0]);
+		buffer.putInt(scores[1]);
+		buffer.putInt(noOfTurns);
+		buffer.putInt(turnsLeft);
+		buffer.put((byte) (countdownStarted ? 1 : 0));
+		buffer.putInt(tilesLeft);
+		buffer.put(faces);
+		for (int tile = tilesLeft; tile < NO_OF_TILES; tile++)
+		{
+			buffer.put(places[tile]);
+			buffer.put((byte) spots[tile]);
+			buffer.put((byte) letters[tile]);
+		}
+
+		Path file = Paths.get(fileName);
+		Path newFile = Paths.get(fileName + ".new");
+		FileOutputStream out = new FileOutputStream(newFile.toFile());
+		try
+		{
+			out.write(buffer.array());
+		}
+		finally
+		{
+			out.close();
+		}
+
+		try
+		{
+			Files.move(newFile, file, StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (AtomicMoveNotSupportedException notAtomic)
+		{
+			Files.move(newFile, file, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Reads a game from a file, checking that it makes sense before
+	 * returning it
+	 * 
+	 * @param fileName the name of the file
+	 * @return the saved game
+	 * @throws IOException if the file could not be read or is not a saved
+	 *             game
+	 */
+	public static SavedGame read(String fileName) throws IOException
+	{
+		byte[] bytes;
+		RandomAccessFile file = new RandomAccessFile(fileName, "r");
+		try
+		{
+			if (file.length() < FIXED_SIZE || file.length() > FIXED_SIZE
+					+ NO_OF_TILES * DEALT_TILE_SIZE)
+				throw new IOException(fileName + " is not a saved game");
+			bytes = new byte[(int) file.length()];
+			file.readFully(bytes);
+		}
+		finally
+		{
+			file.close();
+		}
+
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+			throw new IOException(fileName + " is not a saved game");
+
+		SavedGame game = new SavedGame();
+		game.computerType = buffer.getInt();
+		game.currentPlayer = buffer.getInt();
+		game.scores[0] = buffer.getInt();
+		game.scores[1] = buffer.getInt();
+		game.noOfTurns = buffer.getInt();
+		game.turnsLeft = buffer.getInt();
+		game.countdownStarted = buffer.get() != 0;
+		game.tilesLeft = buffer.getInt();
+		if (game.tilesLeft < 0 || game.tilesLeft > NO_OF_TILES
+				|| bytes.length != FIXED_SIZE + (NO_OF_TILES - game.tilesLeft)
+						* DEALT_TILE_SIZE)
+			throw new IOException(fileName + " is the wrong size");
+
+		buffer.get(game.faces);
+		for (int tile = game.tilesLeft; tile < NO_OF_TILES; tile++)
+		{
+			game.places[tile] = buffer.get();
+			game.spots[tile] = buffer.get() & 0xFF;
+			game.letters[tile] = (char) buffer.get();
+		}
+
+		if (!game.isValid())
+			throw new IOException(fileName + " is damaged");
+		return game;
+	}
+
+	/**
+	 * Checks that the game could have been played: a full set of tiles, each
+	 * dealt tile in a place of its own and the game details in range
+	 * 
+	 * @return true if the game makes sense, false if not
+	 */
+	private boolean isValid()
+	{
+		if (computerType < 0 || computerType > Player.SIMULATING_COMPUTER
+				|| currentPlayer < 1 || currentPlayer > 2 || scores[0] < 0
+				|| scores[1] < 0 || turnsLeft < 0)
+			return false;
+
+		// Check that the pile holds a full set of tiles
+		int[] count = Pile.getDistribution();
+		for (int tile = 0; tile < NO_OF_TILES; tile++)
+		{
+			if (faces[tile] < 0 || faces[tile] >= count.length
+					|| --count[faces[tile]] < 0)
+				return false;
+		}
+
+		// Check that no two tiles are in the same place
+		boolean[] squareTaken = new boolean[NO_OF_SQUARES];
+		boolean[][] spotTaken = new boolean[2][RACK_SIZE];
+		int[] rackSize = new int[2];
+		for (int tile = tilesLeft; tile < NO_OF_TILES; tile++)
+		{
+			// Only blanks are set to a letter
+			char letter = letters[tile];
+			if (faces[tile] == count.length - 1)
+			{
+				if (letter != ' ' && (letter < 'A' || letter > 'Z'))
+					return false;
+			}
+			else if (letter != 'A' + faces[tile])
+				return false;
+
+			int spot = spots[tile];
+			if (places[tile] == ON_BOARD || places[tile] == PLAYED_THIS_TURN)
+			{
+				if (spot >= NO_OF_SQUARES || squareTaken[spot]
+						|| letter == ' ')
+					return false;
+				squareTaken[spot] = true;
+			}
+			else if (places[tile] == ON_RACK_ONE
+					|| places[tile] == ON_RACK_TWO)
+			{
+				int rack = places[tile] - ON_RACK_ONE;
+				if (++rackSize[rack] > RACK_SIZE)
+					return false;
+				if (spot != ANY_SPOT)
+				{
+					if (spot >= RACK_SIZE || spotTaken[rack][spot])
+						return false;
+					spotTaken[rack][spot] = true;
+				}
+			}
+			else
+				return false;
+		}
+		return true;
+	}
+}
@@ -10,13 +10,14 @@ import java.awt.*;
 import javax.swing.*;
 
 import java.awt.event.*;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 public class ScrabbleMain extends JFrame implements ActionListener
 {
@@ -29,7 +30,8 @@ public class ScrabbleMain extends JFrame implements ActionListener
 	public static final int ROW_SPACING = Tile.HEIGHT_SMALL + 2;
 	public static final int COL_SPACING = Tile.WIDTH_SMALL + 3;
 
-	private static final int ANIMATION_FRAMES = 6;
+	// How long a tile takes to slide to its place (in milliseconds)
+	private static final int ANIMATION_TIME = 300;
 	private static final boolean ANIMATION_ON = true;
 	private static final Point[] LOCATION_OF_RACK_TILES = { new Point(30, 553),
 			new Point(103, 553), new Point(176, 553), new Point(249, 553),
@@ -44,19 +46,40 @@ public class ScrabbleMain extends JFrame implements ActionListener
 	private static final int PLAYER_ONE_TURN_SCREEN = 1;
 	private static final int PLAYER_TWO_TURN_SCREEN = 2;
 
-	private JMenuItem newOption, exitOption, viewScoresOption, optionsMenuItem,
-			aboutMenuItem;
+	// How often the thinking indicator is updated and how long the computer
+	// may search before it is made to move (in milliseconds)
+	private static final int THINKING_UPDATE_DELAY = 100;
+	private static final int COMPUTER_TIME_LIMIT = 5000;
+
+	// How long the hard computer searches for its best move and the
+	// simulating computer simulates its best moves (in milliseconds)
+	private static final int HARD_COMPUTER_TIME_BUDGET = 2000;
+	private static final int SIMULATING_COMPUTER_TIME_BUDGET = 4000;
+
+	// How long the computer's move or pass is shown (in milliseconds)
+	private static final int COMPUTER_MOVE_PAUSE = 2000;
+	private static final int COMPUTER_PASS_PAUSE = 1500;
+
+	// How often a stopped search is told again to stop until it has
+	// (in milliseconds)
+	private static final int STOP_WAIT = 10;
+
+	// The number of scores on the high score list
+	private static final int NO_OF_TOP_SCORES = 5;
+
+	private JMenuItem newOption, simulatingOption, resumeOption, exitOption,
+			moveNowOption, viewScoresOption, optionsMenuItem, aboutMenuItem;
 
 	private DrawingPanel boardArea;
+	private TileAnimator tileAnimator;
 	private Image titleScreen, playerScreen, playerOneTurnScreen,
 			playerTwoTurnScreen, gameScreen, passIcon, playIcon, helpScreen1,
 			helpScreen2, helpScreen3;
 	private Image[] tileImages;
 
-	private ArrayList<Player> topPlayers;
+	private Leaderboard topScores;
 	private Board gameBoard;
 	private Pile deck;
-	private StringBuilder playerData;
 	private Player playerOne;
 	private Player playerTwo;
 	private boolean gameOver;
@@ -82,6 +105,23 @@ public class ScrabbleMain extends JFrame implements ActionListener
 	private boolean computerPassed;
 	private Word currentWord;
 
+	// The board with the tiles locked into it, drawn once and kept until
+	// another tile is locked in
+	private BufferedImage boardLayer;
+	private boolean boardLayerStale;
+
+	// The board the tiles played this turn were last checked on. The result
+	// only changes when a tile is placed or picked up, so it is kept until
+	// the board or the turn changes
+	private long checkedBoard;
+	private boolean turnChecked;
+
+	private SwingWorker<Move, Void> computerWorker;
+	private Timer thinkingTimer;
+	private Timer computerPauseTimer;
+	private long thinkingStartTime;
+	private ForkJoinPool searchPool;
+
 	/**
 	 * Creates a simple Scrabble Frame Application
 	 */
@@ -94,6 +134,10 @@ public class ScrabbleMain extends JFrame implements ActionListener
 		setIconImage(Toolkit.getDefaultToolkit().getImage(
 				"images\\Scrabble Icon.png"));
 
+		// Start decoding the tile images while the rest of the window is set
+		// up
+		TileImages.preload();
+
 		// Load up game images
 		titleScreen = new ImageIcon("images\\TitleScreen.png").getImage();
 		playerScreen = new ImageIcon("images\\ChoosingPlayers.png").getImage();
@@ -118,12 +162,30 @@ public class ScrabbleMain extends JFrame implements ActionListener
 				InputEvent.CTRL_MASK));
 		newOption.addActionListener(this);
 
+		simulatingOption = new JMenuItem("New Game Against Simulating CPU");
+		simulatingOption.addActionListener(this);
+
+		// A game is saved after every turn, so it can be carried on after the
+		// program is closed
+		resumeOption = new JMenuItem("Resume Saved Game");
+		resumeOption.addActionListener(this);
+		resumeOption.setEnabled(new File(SavedGame.SAVE_FILE).exists());
+
 		exitOption = new JMenuItem("Exit");
 		exitOption.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_X,
 				InputEvent.CTRL_MASK));
 		exitOption.addActionListener(this);
 
+		moveNowOption = new JMenuItem("Move Now");
+		moveNowOption.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_M,
+				InputEvent.CTRL_DOWN_MASK));
+		moveNowOption.addActionListener(this);
+		moveNowOption.setEnabled(false);
+
 		gameMenu.add(newOption);
+		gameMenu.add(simulatingOption);
+		gameMenu.add(resumeOption);
+		gameMenu.add(moveNowOption);
 		gameMenu.addSeparator();
 		gameMenu.add(exitOption);
 
@@ -153,26 +215,21 @@ public class ScrabbleMain extends JFrame implements ActionListener
 		// Centre the frame in the middle (almost) of the screen
 		setLayout(new BorderLayout());
 		boardArea = new DrawingPanel();
+		tileAnimator = new TileAnimator(boardArea, ANIMATION_TIME, this);
 		add(boardArea, BorderLayout.CENTER);
 		Dimension screen = Toolkit.getDefaultToolkit().getScreenSize();
 		setLocation((screen.width - boardArea.WIDTH) / 2,
 				(screen.height - boardArea.HEIGHT) / 2 - 52);
 
-		// Try to open the file and read in the top player information
+		// Read in the top scores recorded so far
+		topScores = new Leaderboard(Leaderboard.SCORES_FILE, NO_OF_TOP_SCORES);
 		try
 		{
-			// Read the entire ArrayList from a file
-			ObjectInputStream fileIn = new ObjectInputStream(
-					new FileInputStream("topPlayers.dat"));
-			topPlayers = (ArrayList<Player>) fileIn.readObject();
-			fileIn.close();
+			topScores.refresh();
 		}
-		catch (Exception fileNotFound)
+		catch (IOException cantRead)
 		{
-			// If we had trouble reading the file (e.g. it doesnt exist) or
-			// if our file has errors an Exception will be thrown and we can
-			// create a new empty list
-			topPlayers = new ArrayList<Player>();
+			System.out.println("Can't read file");
 		}
 
 		// Initialize variables, including board and pile
@@ -181,10 +238,18 @@ public class ScrabbleMain extends JFrame implements ActionListener
 
 		playedTiles = new ArrayList<Tile>();
 		turnTiles = new ArrayList<Tile>();
-		playerData = new StringBuilder();
 
 		screenNo = TITLE_SCREEN;
 		helpScreenNo = 0;
+
+		// Set up the timers for the computer's turn
+		thinkingTimer = new Timer(THINKING_UPDATE_DELAY, this);
+		computerPauseTimer = new Timer(COMPUTER_MOVE_PAUSE, this);
+		computerPauseTimer.setRepeats(false);
+
+		// The hard and simulating computers search for their moves on every
+		// core
+		searchPool = new ForkJoinPool();
 	}
 
 	/**
@@ -198,13 +263,54 @@ public class ScrabbleMain extends JFrame implements ActionListener
 		{
 			newGame();
 		}
+		else if (event.getSource() == simulatingOption) // Selected "Simulating"
+		{
+			computerType = Player.SIMULATING_COMPUTER;
+			newGame();
+		}
+		else if (event.getSource() == resumeOption) // Selected "Resume"
+		{
+			resumeGame();
+		}
 		else if (event.getSource() == exitOption) // Selected "Exit"
 		{
 			System.exit(0);
 		}
+		else if (event.getSource() == moveNowOption) // Selected "Move Now"
+		{
+			if (computerThinking)
+				currentPlayer.stopSearch();
+		}
+		else if (event.getSource() == thinkingTimer)
+		{
+			// Make the computer move once it has used up its time
+			if (System.currentTimeMillis() - thinkingStartTime
+					>= COMPUTER_TIME_LIMIT)
+				currentPlayer.stopSearch();
+			boardArea.repaint();
+		}
+		else if (event.getSource() == computerPauseTimer)
+		{
+			endComputerTurn();
+		}
+		else if (event.getSource() == tileAnimator)
+		{
+			// Tiles locked into the board are drawn with the board once they
+			// have stopped sliding
+			boardLayerStale = true;
+		}
 		else if (event.getSource() == viewScoresOption) // Selected "View"
 		{
-			JOptionPane.showMessageDialog(boardArea, playerData.toString(),
+			// Pick up the scores of any other games finished since
+			try
+			{
+				topScores.refresh();
+			}
+			catch (IOException cantRead)
+			{
+				System.out.println("Can't read file");
+			}
+			JOptionPane.showMessageDialog(boardArea, topScores.toString(),
 					"High Scores", JOptionPane.INFORMATION_MESSAGE);
 		}
 		else if (event.getSource() == aboutMenuItem) // Selected "About"
@@ -227,6 +333,10 @@ public class ScrabbleMain extends JFrame implements ActionListener
 		screenNo = GAME_SCREEN;
 		turnScreenNo = 0;
 
+		// Stop the computer if it is in the middle of a turn
+		cancelComputerTurn();
+		tileAnimator.finishAll();
+
 		// Clear the game board, recall all tiles into the deck, shuffle the
 		// deck, and reset the number of turns
 		gameBoard.clear();
@@ -238,18 +348,21 @@ public class ScrabbleMain extends JFrame implements ActionListener
 		exchangeClicked = false;
 		currentWord = null;
 		computerThinking = false;
+		computerPassed = false;
 		gameOver = false;
 		wordIsValid = false;
+		turnChecked = false;
 
 		// Counts down when there are no tiles left in the bag
 		turnsLeft = 5;
 
-		// Make all tiles in the deck large again
-		deck.resetSizes();
+		// Make all tiles in the deck large and unplayed again
+		deck.resetTiles();
 
 		// Clear tile lists
 		playedTiles.clear();
 		turnTiles.clear();
+		boardLayerStale = true;
 
 		// Create new racks of 7 tiles
 		ArrayList<Tile> firstRack = new ArrayList<Tile>();
@@ -267,7 +380,25 @@ public class ScrabbleMain extends JFrame implements ActionListener
 			nextTile.setLocation(LOCATION_OF_RACK_TILES[tile]);
 		}
 
-		// Create two new players
+		createPlayers(firstRack, secondRack);
+
+		// Sets the current player
+		currentPlayer = playerOne;
+
+		checkpoint();
+		repaint();
+	}
+
+	/**
+	 * Creates the two players with their racks. The second player is the
+	 * kind of computer chosen, or a person
+	 * 
+	 * @param firstRack the rack of player one
+	 * @param secondRack the rack of player two
+	 */
+	private void createPlayers(ArrayList<Tile> firstRack,
+			ArrayList<Tile> secondRack)
+	{
 		playerOne = new Player(firstRack, 1);
 
 		// Create the second player depending on what the player chooses
@@ -281,6 +412,23 @@ public class ScrabbleMain extends JFrame implements ActionListener
 		{
 			playerTwo = new Player(gameBoard, secondRack, Player.HARD_COMPUTER,
 					gameBoard.getWordsOnBoard(), playedTiles, 2);
+			playerTwo.setTimeBudget(HARD_COMPUTER_TIME_BUDGET);
+			playerTwo.setSearchPool(searchPool);
+
+			// A game here only ends once its last turn is taken
+			playerTwo.setEndgameRules(false, 0);
+			isComputer = true;
+		}
+		else if (computerType == Player.SIMULATING_COMPUTER)
+		{
+			playerTwo = new Player(gameBoard, secondRack,
+					Player.SIMULATING_COMPUTER, gameBoard.getWordsOnBoard(),
+					playedTiles, 2);
+			playerTwo.setTimeBudget(SIMULATING_COMPUTER_TIME_BUDGET);
+			playerTwo.setSearchPool(searchPool);
+
+			// A game here only ends once its last turn is taken
+			playerTwo.setEndgameRules(false, 0);
 			isComputer = true;
 		}
 		else
@@ -288,9 +436,240 @@ public class ScrabbleMain extends JFrame implements ActionListener
 			playerTwo = new Player(secondRack, 2);
 			isComputer = false;
 		}
+	}
 
-		// Sets the current player
-		currentPlayer = playerOne;
+	/**
+	 * Saves the game as it is at the start of a turn, so that it can be
+	 * carried on if the program is closed or crashes
+	 */
+	private void checkpoint()
+	{
+		try
+		{
+			saveGame().write(SavedGame.SAVE_FILE);
+			resumeOption.setEnabled(true);
+		}
+		catch (IOException cantWrite)
+		{
+			System.out.println("Can't write file");
+		}
+	}
+
+	/**
+	 * Records everything needed to carry on the current game
+	 * 
+	 * @return the saved game
+	 */
+	private SavedGame saveGame()
+	{
+		SavedGame saved = new SavedGame();
+		saved.computerType = computerType;
+		if (currentPlayer == playerOne)
+			saved.currentPlayer = 1;
+		else
+			saved.currentPlayer = 2;
+		saved.scores[0] = playerOne.getScore();
+		saved.scores[1] = playerTwo.getScore();
+		saved.noOfTurns = noOfTurns;
+		saved.turnsLeft = turnsLeft;
+		saved.countdownStarted = countdownStarted;
+		saved.faces = deck.getFaces();
+		saved.tilesLeft = deck.getNoOfTilesLeft();
+
+		// Find where each tile dealt from the pile is
+		for (int index = saved.tilesLeft; index < SavedGame.NO_OF_TILES;
+				index++)
+		{
+			Tile tile = deck.getTile(index);
+			saved.letters[index] = tile.getChar();
+
+			if (isOnRack(playerOne, tile))
+			{
+				saved.places[index] = SavedGame.ON_RACK_ONE;
+				saved.spots[index] = (tile.x - RACK_LEFT_OFFSET) / RACK_SPACING;
+			}
+			else if (isOnRack(playerTwo, tile))
+			{
+				saved.places[index] = SavedGame.ON_RACK_TWO;
+				saved.spots[index] = (tile.x - RACK_LEFT_OFFSET) / RACK_SPACING;
+			}
+			else if (gameBoard.getBoard()[tile.getRow()][tile.getCol()] == tile)
+			{
+				if (tile.isPlayed())
+					saved.places[index] = SavedGame.ON_BOARD;
+				else
+					saved.places[index] = SavedGame.PLAYED_THIS_TURN;
+				saved.spots[index] = tile.getRow() * gameBoard.NO_COLS
+						+ tile.getCol();
+			}
+
+			// A tile being dragged goes back on the rack
+			else
+			{
+				if (currentPlayer == playerOne)
+					saved.places[index] = SavedGame.ON_RACK_ONE;
+				else
+					saved.places[index] = SavedGame.ON_RACK_TWO;
+				saved.spots[index] = SavedGame.ANY_SPOT;
+			}
+		}
+
+		return saved;
+	}
+
+	/**
+	 * Checks if a tile is on a player's rack. The tile itself is looked for
+	 * rather than an equal one, since tiles are equal when they are in the
+	 * same place
+	 * 
+	 * @param player the player
+	 * @param tile the tile to look for
+	 * @return true if the tile is on the player's rack, false if not
+	 */
+	private static boolean isOnRack(Player player, Tile tile)
+	{
+		for (Tile next : player.getRack())
+			if (next == tile)
+				return true;
+		return false;
+	}
+
+	/**
+	 * Carries on the game saved after the last turn, letting the user know if
+	 * it can't be read
+	 */
+	private void resumeGame()
+	{
+		try
+		{
+			loadGame(SavedGame.read(SavedGame.SAVE_FILE));
+		}
+		catch (IOException cantRead)
+		{
+			JOptionPane.showMessageDialog(boardArea,
+					"The saved game could not be loaded.");
+		}
+	}
+
+	/**
+	 * Sets the game up as it was when it was saved
+	 * 
+	 * @param saved the saved game
+	 */
+	private void loadGame(SavedGame saved)
+	{
+		screenNo = GAME_SCREEN;
+		helpScreenNo = 0;
+
+		// Stop the computer if it is in the middle of a turn
+		cancelComputerTurn();
+		tileAnimator.finishAll();
+
+		// Put the pile back in the saved order
+		gameBoard.clear();
+		deck.recall();
+		deck.resetTiles();
+		deck.arrange(saved.faces, saved.tilesLeft);
+
+		exchangeClicked = false;
+		currentWord = null;
+		currentTile = null;
+		computerThinking = false;
+		computerPassed = false;
+		gameOver = false;
+		wordIsValid = false;
+		currentScore = 0;
+		turnChecked = false;
+
+		computerType = saved.computerType;
+		noOfTurns = saved.noOfTurns;
+		turnsLeft = saved.turnsLeft;
+		countdownStarted = saved.countdownStarted;
+
+		playedTiles.clear();
+		turnTiles.clear();
+		boardLayerStale = true;
+
+		// Put each dealt tile back where it was
+		ArrayList<Tile> firstRack = new ArrayList<Tile>();
+		ArrayList<Tile> secondRack = new ArrayList<Tile>();
+		for (int index = saved.tilesLeft; index < SavedGame.NO_OF_TILES;
+				index++)
+		{
+			Tile tile = deck.getTile(index);
+			if (tile.isBlank() && saved.letters[index] != ' ')
+				tile.set(saved.letters[index]);
+
+			byte place = saved.places[index];
+			int spot = saved.spots[index];
+			if (place == SavedGame.ON_BOARD
+					|| place == SavedGame.PLAYED_THIS_TURN)
+			{
+				int row = spot / gameBoard.NO_COLS;
+				int column = spot % gameBoard.NO_COLS;
+				tile.setPos(row, column);
+				tile.changeSize(Tile.SMALL_TILE);
+				tile.setLocation(column * COL_SPACING + LEFT_OFFSET, row
+						* ROW_SPACING + TOP_OFFSET);
+				gameBoard.place(tile, row, column);
+				playedTiles.add(tile);
+
+				if (place == SavedGame.ON_BOARD)
+					tile.lock();
+				else
+					turnTiles.add(tile);
+			}
+			else
+			{
+				tile.changeSize(Tile.LARGE_TILE);
+				if (spot != SavedGame.ANY_SPOT)
+				{
+					tile.setLocation(LOCATION_OF_RACK_TILES[spot]);
+					if (place == SavedGame.ON_RACK_ONE)
+						firstRack.add(tile);
+					else
+						secondRack.add(tile);
+				}
+			}
+		}
+
+		// Tiles that weren't in a spot go in the first free spots
+		for (int index = saved.tilesLeft; index < SavedGame.NO_OF_TILES;
+				index++)
+		{
+			if (saved.spots[index] != SavedGame.ANY_SPOT
+					|| saved.places[index] == SavedGame.ON_BOARD
+					|| saved.places[index] == SavedGame.PLAYED_THIS_TURN)
+				continue;
+
+			ArrayList<Tile> rack = firstRack;
+			if (saved.places[index] == SavedGame.ON_RACK_TWO)
+				rack = secondRack;
+			Tile tile = deck.getTile(index);
+			tile.setLocation(findNextSpot(rack));
+			rack.add(tile);
+		}
+
+		createPlayers(firstRack, secondRack);
+		playerOne.addScore(saved.scores[0]);
+		playerTwo.addScore(saved.scores[1]);
+
+		// Show whose turn it is, unless they were part way through it
+		if (saved.currentPlayer == 1)
+		{
+			currentPlayer = playerOne;
+			turnScreenNo = PLAYER_ONE_TURN_SCREEN;
+		}
+		else
+		{
+			currentPlayer = playerTwo;
+			turnScreenNo = PLAYER_TWO_TURN_SCREEN;
+		}
+		if (!turnTiles.isEmpty())
+		{
+			turnScreenNo = 0;
+			updateTurnScore();
+		}
 
 		repaint();
 	}
@@ -346,15 +725,30 @@ public class ScrabbleMain extends JFrame implements ActionListener
 					g.drawImage(helpScreen3, 0, 0, this);
 			}
 
-			// Draw the player selection screen
+			// Draw the player selection screen, with a button for the
+			// simulating computer drawn below the others
 			else if (screenNo == PLAYER_SELECTION)
+			{
 				g.drawImage(playerScreen, 0, 0, this);
+				g.setColor(new Color(255, 160, 90));
+				g.fillRoundRect(246, 572, 250, 56, 20, 20);
+				g.setColor(Color.BLACK);
+				g.drawRoundRect(246, 572, 250, 56, 20, 20);
+				g.setFont(new Font("Arial", Font.BOLD, 22));
+				g.drawString("Simulating", 371 - g.getFontMetrics()
+						.stringWidth("Simulating") / 2, 608);
+			}
 
 			// Draw game items
 			else
 			{
-				// Draw the board
-				g.drawImage(gameScreen, 0, 0, this);
+				// Draw the board along with the tiles locked into it
+				g.drawImage(getBoardLayer(), 0, 0, this);
+
+				// Only the tiles in the area being painted need to be drawn
+				Rectangle dirty = g.getClipBounds();
+				if (dirty == null)
+					dirty = new Rectangle(0, 0, getWidth(), getHeight());
 
 				// Draw the play or pass icon and string depending on whether
 				// the word is valid or not and string showing whether it is
@@ -381,10 +775,16 @@ public class ScrabbleMain extends JFrame implements ActionListener
 					g.drawImage(passIcon, 613, 520, this);
 				}
 
-				// Draw when the computer is making its turn
+				// Draw when the computer is making its turn, along with the
+				// best move it has found so far
 				if (computerThinking)
 				{
-					g.drawString("CPU is thinking...", 600, 50);
+					g.drawString("CPU is thinking... "
+							+ currentPlayer.getSearchProgress() + "%", 600, 50);
+					Move bestSoFar = currentPlayer.getBestMoveSoFar();
+					if (bestSoFar != null)
+						g.drawString("Best: " + bestSoFar + " ("
+								+ bestSoFar.getScore() + ")", 600, 65);
 				}
 				else if (computerPassed)
 				{
@@ -418,15 +818,21 @@ public class ScrabbleMain extends JFrame implements ActionListener
 				ArrayList<Tile> currentRack = currentPlayer.getRack();
 				for (Tile tile : currentRack)
 				{
-					tile.draw(g);
+					if (tile.intersects(dirty) && !tileAnimator.isMoving(tile))
+						tile.draw(g);
 				}
 
-				// Draw all the tiles on the board
+				// Draw the tiles on the board that aren't locked in yet
 				for (Tile tile : playedTiles)
 				{
-					tile.draw(g);
+					if (!tile.isPlayed() && tile.intersects(dirty)
+							&& !tileAnimator.isMoving(tile))
+						tile.draw(g);
 				}
 
+				// Draw the tiles sliding to their places
+				tileAnimator.draw(g);
+
 				// Draw the current tile last so it's on top
 				if (currentTile != null)
 				{
@@ -441,6 +847,44 @@ public class ScrabbleMain extends JFrame implements ActionListener
 			}
 
 		}
+
+		/**
+		 * Returns the image of the board with the tiles locked into it,
+		 * drawing it again if a tile has been locked in since it was last
+		 * drawn. Tiles still sliding to the board are left out until they
+		 * get there
+		 * 
+		 * @return the image of the board
+		 */
+		private Image getBoardLayer()
+		{
+			if (boardLayer == null)
+			{
+				// An image in the screen's own format is quickest to draw
+				GraphicsConfiguration screen = getGraphicsConfiguration();
+				if (screen != null)
+					boardLayer = screen.createCompatibleImage(WIDTH, HEIGHT);
+				else
+					boardLayer = new BufferedImage(WIDTH, HEIGHT,
+							BufferedImage.TYPE_INT_RGB);
+				boardLayerStale = true;
+			}
+
+			if (boardLayerStale)
+			{
+				Graphics layer = boardLayer.getGraphics();
+				layer.drawImage(gameScreen, 0, 0, null);
+				for (Tile tile : playedTiles)
+				{
+					if (tile.isPlayed() && !tileAnimator.isMoving(tile))
+						tile.draw(layer);
+				}
+				layer.dispose();
+				boardLayerStale = false;
+			}
+
+			return boardLayer;
+		}
 	}
 
 	/**
@@ -506,7 +950,7 @@ public class ScrabbleMain extends JFrame implements ActionListener
 		tile.setPos(row, column);
 
 		// Add tile to the board
-		gameBoard.getBoard()[row][column] = tile;
+		gameBoard.place(tile, row, column);
 
 		// Add to the playedTiles if not already in there
 		if (!playedTiles.contains(tile))
@@ -617,6 +1061,12 @@ public class ScrabbleMain extends JFrame implements ActionListener
 	 */
 	public void changeTurns()
 	{
+		// The tiles played next turn are checked afresh
+		turnChecked = false;
+
+		// Tiles still sliding from last turn are put in their places
+		tileAnimator.finishAll();
+
 		// Change turns
 		if (currentPlayer.equals(playerOne))
 		{
@@ -628,6 +1078,180 @@ public class ScrabbleMain extends JFrame implements ActionListener
 			currentPlayer = playerOne;
 			turnScreenNo = PLAYER_ONE_TURN_SCREEN;
 		}
+
+		// Save the game at the start of every turn
+		checkpoint();
+	}
+
+	/**
+	 * Starts the computer's turn. The move is searched for on a background
+	 * thread so the window keeps responding, while the thinking timer shows
+	 * how the search is going and makes the computer move once its time is
+	 * up
+	 */
+	private void startComputerTurn()
+	{
+		// Show that the computer is thinking
+		computerThinking = true;
+		thinkingStartTime = System.currentTimeMillis();
+		moveNowOption.setEnabled(true);
+		thinkingTimer.start();
+		rePaintDrawingAreaImmediately();
+
+		// Let the computer know how far ahead the game can be played out.
+		// Only the other player's turns are counted down, so the game ends
+		// after the computer's turn and as many turns each as are left
+		final Player computer = currentPlayer;
+		computer.setTurnsLeft(countdownStarted ? 2 * turnsLeft : 0);
+		computerWorker = new SwingWorker<Move, Void>()
+		{
+			protected Move doInBackground()
+			{
+				return computer.findMove();
+			}
+
+			protected void done()
+			{
+				// Ignore the move if the game was restarted
+				if (isCancelled() || computerWorker != this)
+					return;
+
+				Move move = null;
+				try
+				{
+					move = get();
+				}
+				catch (InterruptedException e)
+				{
+				}
+				catch (ExecutionException e)
+				{
+					e.printStackTrace();
+				}
+				finishComputerTurn(move);
+			}
+		};
+		computerWorker.execute();
+	}
+
+	/**
+	 * Plays the move the computer found, or passes if it found none, and
+	 * shows it for a moment before the turn changes
+	 * 
+	 * @param move the move to play, null to pass
+	 */
+	private void finishComputerTurn(Move move)
+	{
+		computerWorker = null;
+		thinkingTimer.stop();
+		moveNowOption.setEnabled(false);
+		computerThinking = false;
+
+		// If the computer could make a valid word
+		if (move != null)
+		{
+			currentWord = currentPlayer.play(move);
+
+			// Calculate the score
+			currentScore = currentWord.getScore();
+
+			// Add the word to the list of words on the board
+			gameBoard.addWord(currentWord);
+
+			// Animate the tiles moving to their locations and lock them into
+			// the board
+			for (int i = 0; i < currentWord.length(); i++)
+			{
+				Tile next = currentWord.getTile(i);
+				Point boardLocation = new Point(next.getCol()
+						* ScrabbleMain.COL_SPACING + ScrabbleMain.LEFT_OFFSET,
+						next.getRow() * ScrabbleMain.ROW_SPACING
+								+ ScrabbleMain.TOP_OFFSET);
+				moveATile(next, boardLocation);
+				next.lock();
+			}
+			boardLayerStale = true;
+
+			// Show how the CPU's word is valid and add to its score
+			currentPlayer.addScore(currentScore);
+			wordIsValid = true;
+			rePaintDrawingAreaImmediately();
+
+			// Deal new tiles to the computer
+			fillRack();
+
+			// Pause to let the user see the tiles played
+			computerPauseTimer.setInitialDelay(COMPUTER_MOVE_PAUSE);
+		}
+		else
+		{
+			// If not, show that the computer has passed
+			computerPassed = true;
+			rePaintDrawingAreaImmediately();
+			computerPauseTimer.setInitialDelay(COMPUTER_PASS_PAUSE);
+		}
+		computerPauseTimer.start();
+	}
+
+	/**
+	 * Switches the turns after the computer's move has been shown and resets
+	 * the variables for the next turn
+	 */
+	private void endComputerTurn()
+	{
+		changeTurns();
+		computerPassed = false;
+		wordIsValid = false;
+		currentScore = 0;
+		currentWord = null;
+
+		// Show changes
+		rePaintDrawingAreaImmediately();
+	}
+
+	/**
+	 * Stops the computer's turn if one is in progress, throwing away any move
+	 * it is searching for. The search reads the board on other threads, so
+	 * this waits for it to stop before the board can be changed
+	 */
+	private void cancelComputerTurn()
+	{
+		if (computerWorker != null)
+		{
+			SwingWorker<Move, Void> worker = computerWorker;
+			computerWorker = null;
+
+			// Cancelling the worker would not wait for the search, so wait
+			// for it to hand back its move instead and then ignore the move.
+			// The search is stopped again while waiting in case it had moved
+			// on to a new stage that started afresh
+			boolean interrupted = false;
+			while (true)
+			{
+				currentPlayer.stopSearch();
+				try
+				{
+					worker.get(STOP_WAIT, TimeUnit.MILLISECONDS);
+					break;
+				}
+				catch (TimeoutException e)
+				{
+				}
+				catch (InterruptedException e)
+				{
+					interrupted = true;
+				}
+				catch (ExecutionException e)
+				{
+					break;
+				}
+			}
+			if (interrupted)
+				Thread.currentThread().interrupt();
+		}
+		thinkingTimer.stop();
+		computerPauseTimer.stop();
+		moveNowOption.setEnabled(false);
 	}
 
 	/**
@@ -726,6 +1350,14 @@ public class ScrabbleMain extends JFrame implements ActionListener
 					computerType = 2;
 					newGame();
 				}
+
+				// Check if the simulating computer player was clicked
+				else if (clickedPoint.x >= 246 && clickedPoint.x <= 496
+						&& clickedPoint.y >= 572 && clickedPoint.y <= 628)
+				{
+					computerType = Player.SIMULATING_COMPUTER;
+					newGame();
+				}
 			}
 
 			// If we're displaying the screen that shows whose turn it is
@@ -740,71 +1372,7 @@ public class ScrabbleMain extends JFrame implements ActionListener
 
 				// If it's the computer's turn, make a move
 				if (isComputer && currentPlayer.equals(playerTwo))
-				{
-					// Show that the computer is thinking
-					computerThinking = true;
-					rePaintDrawingAreaImmediately();
-
-					currentWord = currentPlayer.makeMove();
-
-					// If the computer could make a valid word
-					if (currentWord != null)
-					{
-						// Calculate the score
-						currentScore = currentWord.getScore();
-
-						// Add the word to the list of words on the board
-						gameBoard.addWord(currentWord);
-						computerThinking = false;
-
-						// Animate the tiles moving to their locations and
-						// lock
-						// them into the board
-						for (int i = 0; i < currentWord.length(); i++)
-						{
-							Tile next = currentWord.getTile(i);
-							Point boardLocation = new Point(next.getCol()
-									* ScrabbleMain.COL_SPACING
-									+ ScrabbleMain.LEFT_OFFSET, next.getRow()
-									* ScrabbleMain.ROW_SPACING
-									+ ScrabbleMain.TOP_OFFSET);
-							moveATile(next, boardLocation);
-							next.lock();
-						}
-
-						// Show how the CPU's word is valid and add to its
-						// score
-						currentPlayer.addScore(currentScore);
-						wordIsValid = true;
-						computerThinking = false;
-						rePaintDrawingAreaImmediately();
-
-						// Deal new tiles to the computer
-						fillRack();
-
-						// Delay to let the user see the tiles played
-						delay(2000);
-					}
-					else
-					{
-						// If not, show that the computer has passed
-						computerPassed = true;
-						computerThinking = false;
-						rePaintDrawingAreaImmediately();
-						delay(1500);
-					}
-
-					// Switch the turns and reset the variables for the next
-					// turn
-					changeTurns();
-					computerPassed = false;
-					wordIsValid = false;
-					currentScore = 0;
-					currentWord = null;
-
-					// Show changes
-					rePaintDrawingAreaImmediately();
-				}
+					startComputerTurn();
 			}
 
 			// If we're on the game screen
@@ -851,7 +1419,7 @@ public class ScrabbleMain extends JFrame implements ActionListener
 
 							// Remove it from the board, total played tiles, and
 							// tiles played this turn
-							gameBoard.getBoard()[row][column] = null;
+							gameBoard.remove(row, column);
 							playedTiles.remove(currentTile);
 							turnTiles.remove(currentTile);
 
@@ -880,6 +1448,10 @@ public class ScrabbleMain extends JFrame implements ActionListener
 					}
 				}
 
+				// A tile picked up while sliding stops where it was going
+				if (currentTile != null)
+					tileAnimator.finish(currentTile);
+
 				// If we previously clicked to exchange the tile
 				if (exchangeClicked)
 				{
@@ -906,7 +1478,6 @@ public class ScrabbleMain extends JFrame implements ActionListener
 
 							// Show the tile it was exchanged to
 							rePaintDrawingAreaImmediately();
-							delay(500);
 
 							if (exchangeTile.isBlank())
 								JOptionPane
@@ -983,6 +1554,7 @@ public class ScrabbleMain extends JFrame implements ActionListener
 					// Lock the turn tiles in
 					for (Tile next : turnTiles)
 						next.lock();
+					boardLayerStale = true;
 
 					// Clear the turn tiles
 					turnTiles.clear();
@@ -1012,67 +1584,36 @@ public class ScrabbleMain extends JFrame implements ActionListener
 							gameOver = true;
 							rePaintDrawingAreaImmediately();
 
-							// Keep track of whether the top scores list changed
+							// A finished game can't be carried on
+							new File(SavedGame.SAVE_FILE).delete();
+							resumeOption.setEnabled(false);
 
-							if (!(isComputer && topPlayer.equals(playerTwo)))
+							// If the winner isn't the computer and their score
+							// is high enough, add it to the top scores
+							if (!(isComputer && topPlayer.equals(playerTwo))
+									&& topScores.isTopScore(topPlayer
+											.getScore()))
 							{
-								boolean listChanged = false;
-
-								// If the list is less than 5 players or this
-								// player's score is high enough to get on the
-								// list,
-								// add it to the top scores list
-								if (topPlayers.size() <= 4
-										|| topPlayer.compareTo(topPlayers
-												.get(topPlayers.size() - 1)) < 0)
-								{
-									topPlayers.add(topPlayer);
-									Collections.sort(topPlayers);
-									listChanged = true;
-								}
-
-								// If the size of the list is now larger than 5,
-								// remove the last score
-								if (topPlayers.size() > 5)
+								// Ask for and store the name of the player
+								String name = JOptionPane
+										.showInputDialog(
+												boardArea,
+												"To save your score, please enter your name: ",
+												topPlayer + " Won!",
+												JOptionPane.INFORMATION_MESSAGE);
+								if (name == null || name.equals(""))
+									name = topPlayer.toString();
+								topPlayer.setName(name);
+
+								// Add the score to the end of the scores file
+								try
 								{
-									topPlayers.remove(topPlayers.size() - 1);
+									topScores.record(name,
+											topPlayer.getScore());
 								}
-
-								// If the player was added, re-record the top
-								// players
-								if (listChanged)
+								catch (IOException cantWrite)
 								{
-									// Ask for and store the name of the player
-									String name = JOptionPane
-											.showInputDialog(
-													boardArea,
-													"To save your score, please enter your name: ",
-													topPlayer + " Won!",
-													JOptionPane.INFORMATION_MESSAGE);
-
-									topPlayer.setName(name);
-
-									// Write the entire ArrayList to a file
-									try
-									{
-										ObjectOutputStream fileOut;
-										fileOut = new ObjectOutputStream(
-												new FileOutputStream(
-														"topPlayers.dat"));
-										fileOut.writeObject(topPlayers);
-										fileOut.close();
-									}
-									catch (Exception FileNotFound)
-									{
-										System.out.println("Can't write file");
-									}
-
-									// Build the top scores list
-									for (Player player : topPlayers)
-									{
-										playerData.append(player
-												.getPlayerData() + "\n");
-									}
+									System.out.println("Can't write file");
 								}
 							}
 							if (JOptionPane.showConfirmDialog(boardArea,
@@ -1211,7 +1752,8 @@ public class ScrabbleMain extends JFrame implements ActionListener
 				// Check if the mouse is on one of the buttons
 				if ((pos.x >= 51 && pos.x <= 629 && pos.y >= 237 && pos.y <= 319)
 						|| (pos.x >= 98 && pos.x <= 354 && pos.y >= 449 && pos.y <= 528)
-						|| (pos.x >= 412 && pos.x <= 652 && pos.y >= 445 && pos.y <= 525))
+						|| (pos.x >= 412 && pos.x <= 652 && pos.y >= 445 && pos.y <= 525)
+						|| (pos.x >= 246 && pos.x <= 496 && pos.y >= 572 && pos.y <= 628))
 				{
 					setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
 				}
@@ -1297,6 +1839,7 @@ public class ScrabbleMain extends JFrame implements ActionListener
 
 				// Set the size depending on its location and centre it as it
 				// changes size
+				Rectangle dirty = currentTile.getBounds();
 				setSize(currentTile, lastPoint);
 				currentTile.centreTile(currentPoint);
 
@@ -1306,16 +1849,32 @@ public class ScrabbleMain extends JFrame implements ActionListener
 				currentTile.translate(currentPoint.x - lastPoint.x,
 						currentPoint.y - lastPoint.y);
 				lastPoint = currentPoint;
-				repaint();
+
+				// Only draw again where the tile was and where it is now
+				boardArea.repaint(dirty.union(currentTile));
 			}
 		}
 	}
 
 	/**
-	 * Updates the score displayed for the current word
+	 * Checks the tiles played this turn and updates the score displayed for
+	 * the current word. Called when a tile is placed on or picked up from the
+	 * board, never while painting. Within a turn the result depends only on
+	 * the letters on the board, so it isn't worked out again until they
+	 * change
 	 */
 	private void updateTurnScore()
 	{
+		long boardHash = gameBoard.getHash();
+		if (turnChecked && boardHash == checkedBoard)
+			return;
+		turnChecked = true;
+		checkedBoard = boardHash;
+
+		// Nothing counts until the word is found to be valid again
+		currentScore = 0;
+		wordIsValid = false;
+
 		// Find the word being played
 		Word word = gameBoard.isAligned(turnTiles);
 
@@ -1341,12 +1900,10 @@ public class ScrabbleMain extends JFrame implements ActionListener
 
 				// If it's on the star and the word is in the dictionary set the
 				// score
-				if (isOnStar && gameBoard.dictionary.isWord(word.toString()))
+				if (isOnStar && gameBoard.dictionary.isWord(word))
 				{
 					currentScore = gameBoard.getScore(word, turnTiles);
 				}
-				else
-					currentScore = 0;
 			}
 			// Otherwise, calculate the score normally
 			// Check if the tiles being played are connected to an already
@@ -1363,15 +1920,6 @@ public class ScrabbleMain extends JFrame implements ActionListener
 			// Set word is valid
 			if (currentScore > 0)
 				wordIsValid = true;
-			else
-				wordIsValid = false;
-		}
-
-		// If the word is not aligned
-		else
-		{
-			wordIsValid = false;
-			currentScore = 0;
 		}
 	}
 
@@ -1427,7 +1975,7 @@ public class ScrabbleMain extends JFrame implements ActionListener
 			// board and clear that location on the board
 			int row = (next.getLocation().y - TOP_OFFSET) / ROW_SPACING;
 			int column = (next.getLocation().x - LEFT_OFFSET) / COL_SPACING;
-			gameBoard.getBoard()[row][column] = null;
+			gameBoard.remove(row, column);
 
 			// Send the tiles back to the rack and add to it
 			moveATile(next, findNextSpot(currentPlayer.getRack()));
@@ -1439,6 +1987,7 @@ public class ScrabbleMain extends JFrame implements ActionListener
 
 		currentScore = 0;
 		wordIsValid = false;
+		turnChecked = false;
 		turnTiles.clear();
 
 	}
@@ -1495,50 +2044,19 @@ public class ScrabbleMain extends JFrame implements ActionListener
 	}
 
 	/**
-	 * Moves a card with a simple animation
+	 * Moves a card with a simple animation. The tile is in its new place
+	 * straight away and slides there on the screen while the game carries on
 	 * 
 	 * @param tileToMove the Tile you want to move
 	 * @param finalPos the final position of the Tile
 	 */
 	private void moveATile(Tile tileToMove, Point finalPos)
 	{
-		int x = tileToMove.x;
-		int y = tileToMove.y;
-		int dx = (finalPos.x - x) / ANIMATION_FRAMES;
-		int dy = (finalPos.y - y) / ANIMATION_FRAMES;
-
-		// Animate the tile moving toward its location
-		for (int times = 1; times <= ANIMATION_FRAMES; times++)
-		{
-			x += dx;
-			y += dy;
-			tileToMove.setLocation(x, y);
-			rePaintDrawingAreaImmediately();
-			delay(50);
-		}
-
-		// Set the tile's final location and size
-		tileToMove.setLocation(finalPos);
-		setSize(tileToMove, finalPos);
-
-		// Clear up whole card area
-		rePaintDrawingAreaImmediately();
-	}
-
-	/**
-	 * Delays the given number of milliseconds
-	 * 
-	 * @param msec the number of milliseconds to delay
-	 */
-	private void delay(int msec)
-	{
-		try
-		{
-			Thread.sleep(msec);
-		}
-		catch (Exception e)
-		{
-		}
+		// The tile ends up small on the board and large off it
+		if (isOnBoard(finalPos))
+			tileAnimator.move(tileToMove, finalPos, Tile.SMALL_TILE);
+		else
+			tileAnimator.move(tileToMove, finalPos, Tile.LARGE_TILE);
 	}
 
 	public static void main(String[] args)
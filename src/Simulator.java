@@ -0,0 +1,340 @@
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Chooses a move by simulating the replies to the best few moves. Each
+ * rollout plays a candidate move on a scratch overlay, deals the opponent a
+ * random rack from the tiles the player can't see (the pile and the
+ * opponent's rack) and finds the opponent's best reply. A candidate's equity
+ * in a rollout is its value (score plus leave) less the value of the reply,
+ * and the candidate with the best average equity is played. Rollouts are
+ * shared out between the candidates in turn and run on a pool of workers,
+ * each with its own overlay, move generator and random numbers. Every
+ * candidate is tried against the same random racks, so the differences
+ * between them are not down to the luck of the draw
+ * 
+ */
+public class Simulator
+{
+	// The number of moves simulated, taken from the top of the static
+	// ranking
+	public static final int NO_OF_CANDIDATES = 10;
+
+	// The rollouts run for each candidate without a time limit, and the most
+	// run within one
+	public static final int ROLLOUTS_PER_CANDIDATE = 50;
+	public static final int MAX_ROLLOUTS_PER_CANDIDATE = 1000;
+
+	private static final int RACK_SIZE = 7;
+
+	private Board board;
+	private LeaveTable leaves;
+	private long timeLimit;
+
+	// Seeds the random racks of each simulation
+	private Random seeds;
+	private long rackSeed;
+
+	// The moves being simulated and their results so far
+	private Move[] candidates;
+	private double[] totals;
+	private int[] counts;
+	private int[] unseenTiles;
+	private AtomicInteger nextRollout;
+	private int maxRollouts;
+	private long startTime;
+	private long deadline;
+
+	// Read by other threads while a simulation is running
+	private volatile boolean stopped;
+	private volatile Move bestMove;
+	private volatile int rolloutsDone;
+
+	/**
+	 * Constructs a simulator for a given board
+	 * 
+	 * @param board the board to simulate moves on
+	 * @param seed the seed for the random racks
+	 */
+	public Simulator(Board board, long seed)
+	{
+		this.board = board;
+		seeds = new Random(seed);
+	}
+
+	/**
+	 * Sets the leave values counted in the equity of each move and reply
+	 * 
+	 * @param leaves the leave values to use, null to go by score alone
+	 */
+	public void setLeaveTable(LeaveTable leaves)
+	{
+		this.leaves = leaves;
+	}
+
+	/**
+	 * Sets the time a simulation may take. Without a limit each candidate
+	 * gets ROLLOUTS_PER_CANDIDATE rollouts
+	 * 
+	 * @param millis the time limit in milliseconds, 0 for no limit
+	 */
+	public void setTimeLimit(int millis)
+	{
+		timeLimit = millis * 1000000L;
+	}
+
+	/**
+	 * Gets ready for a new simulation. Called before the moves for the rack
+	 * are found, so that stopping the search for them also stops the
+	 * simulation
+	 */
+	public void start()
+	{
+		stopped = false;
+		bestMove = null;
+		rolloutsDone = 0;
+		maxRollouts = 0;
+		startTime = System.nanoTime();
+	}
+
+	/**
+	 * Stops a running simulation so that it returns straight away with the
+	 * best move so far
+	 */
+	public void stop()
+	{
+		stopped = true;
+	}
+
+	/**
+	 * Returns the move with the best average equity so far. Safe to call
+	 * from another thread while the simulation is running
+	 * 
+	 * @return the best move so far, null if no rollouts have finished
+	 */
+	public Move getBestMove()
+	{
+		return bestMove;
+	}
+
+	/**
+	 * Returns how far a running simulation has got
+	 * 
+	 * @return the percentage of the rollouts or time used
+	 */
+	public int getProgress()
+	{
+		if (timeLimit > 0)
+			return (int) Math.min(100, 100 * (System.nanoTime() - startTime)
+					/ timeLimit);
+		if (maxRollouts == 0)
+			return 0;
+		return 100 * rolloutsDone / maxRollouts;
+	}
+
+	/**
+	 * Simulates the best moves for a rack and returns the one with the best
+	 * average equity. The time limit counts from the call to start
+	 * 
+	 * @param moves every legal move for the rack
+	 * @param rack the tiles on the rack
+	 * @param pool the pool to run the rollouts on, null to run them on the
+	 *            calling thread
+	 * @return the move to play, null if there are none
+	 */
+	public Move chooseMove(ArrayList<Move> moves, ArrayList<Tile> rack,
+			ForkJoinPool pool)
+	{
+		deadline = startTime + timeLimit;
+
+		// Take the highest valued moves, best first
+		ArrayList<Move> best = new ArrayList<Move>();
+		for (Move nextMove : moves)
+		{
+			int index = best.size();
+			while (index > 0
+					&& nextMove.getValue() > best.get(index - 1).getValue())
+				index--;
+			if (index < NO_OF_CANDIDATES)
+			{
+				best.add(index, nextMove);
+				if (best.size() > NO_OF_CANDIDATES)
+					best.remove(NO_OF_CANDIDATES);
+			}
+		}
+		if (best.size() <= 1)
+			return best.isEmpty() ? null : best.get(0);
+
+		candidates = best.toArray(new Move[best.size()]);
+		totals = new double[candidates.length];
+		counts = new int[candidates.length];
+		countUnseen(rack);
+
+		nextRollout = new AtomicInteger();
+		if (timeLimit > 0)
+			maxRollouts = candidates.length * MAX_ROLLOUTS_PER_CANDIDATE;
+		else
+			maxRollouts = candidates.length * ROLLOUTS_PER_CANDIDATE;
+
+		// Until a rollout finishes, the best move is the best static move
+		bestMove = candidates[0];
+
+		rackSeed = seeds.nextLong();
+		if (pool == null)
+			new Worker().call();
+		else
+		{
+			ArrayList<Worker> workers = new ArrayList<Worker>();
+			for (int worker = 0; worker < pool.getParallelism(); worker++)
+				workers.add(new Worker());
+			for (Future<Void> result : pool.invokeAll(workers))
+			{
+				try
+				{
+					result.get();
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+				}
+				catch (ExecutionException e)
+				{
+					throw new RuntimeException(e.getCause());
+				}
+			}
+		}
+
+		return bestMove;
+	}
+
+	/**
+	 * Lists the tiles the player can't see one by one
+	 * 
+	 * @param rack the tiles on the player's rack
+	 */
+	private void countUnseen(ArrayList<Tile> rack)
+	{
+		int[] unseen = board.countUnseen(rack);
+		int noOfUnseen = 0;
+		for (int type = 0; type < unseen.length; type++)
+			noOfUnseen += unseen[type];
+
+		unseenTiles = new int[noOfUnseen];
+		int index = 0;
+		for (int type = 0; type < unseen.length; type++)
+			for (int copy = 0; copy < unseen[type]; copy++)
+				unseenTiles[index++] = type;
+	}
+
+	/**
+	 * Adds the equity of a rollout to its candidate's results
+	 * 
+	 * @param candidate the index of the candidate
+	 * @param equity the equity of the candidate in the rollout
+	 */
+	private synchronized void addResult(int candidate, double equity)
+	{
+		totals[candidate] += equity;
+		counts[candidate]++;
+		rolloutsDone++;
+
+		// Keep the earlier (statically better) move on a tie
+		int best = -1;
+		for (int next = 0; next < candidates.length; next++)
+		{
+			if (counts[next] > 0
+					&& (best < 0 || totals[next] / counts[next] > totals[best]
+							/ counts[best]))
+				best = next;
+		}
+		bestMove = candidates[best];
+	}
+
+	/**
+	 * Runs rollouts until there are enough or time runs out. Each worker
+	 * has its own overlay and generator to try out the moves on, and its own
+	 * random numbers so that the workers don't wait on each other
+	 */
+	private class Worker implements Callable<Void>
+	{
+		private Random random;
+		private BoardOverlay overlay;
+		private MoveGenerator generator;
+
+		// The unseen tiles, shuffled for each rollout
+		private int[] bag;
+		private int[] letters;
+
+		public Worker()
+		{
+			random = new Random();
+			overlay = new BoardOverlay(board);
+			generator = new MoveGenerator(overlay);
+			generator.setLeaveTable(leaves);
+			bag = new int[unseenTiles.length];
+			letters = new int[26];
+		}
+
+		public Void call()
+		{
+			while (!stopped && (timeLimit == 0 || System.nanoTime() < deadline))
+			{
+				int rollout = nextRollout.getAndIncrement();
+				if (rollout >= maxRollouts)
+					break;
+
+				// The n-th rollout of every candidate deals the same rack
+				int candidate = rollout % candidates.length;
+				random.setSeed(rackSeed + rollout / candidates.length);
+				addResult(candidate, rollout(candidates[candidate]));
+			}
+			return null;
+		}
+
+		/**
+		 * Plays a move and a random reply to it
+		 * 
+		 * @param move the move to try
+		 * @return the value of the move less the value of the reply
+		 */
+		private double rollout(Move move)
+		{
+			overlay.clear();
+			overlay.play(move);
+
+			// Deal the opponent a rack from the unseen tiles. The tiles the
+			// player draws after the move come from the same tiles, so they
+			// don't change the chances of each rack
+			System.arraycopy(unseenTiles, 0, bag, 0, bag.length);
+			int dealt = Math.min(RACK_SIZE, bag.length);
+			for (int i = 0; i < dealt; i++)
+			{
+				int swap = i + random.nextInt(bag.length - i);
+				int tile = bag[swap];
+				bag[swap] = bag[i];
+				bag[i] = tile;
+			}
+
+			for (int letter = 0; letter < letters.length; letter++)
+				letters[letter] = 0;
+			int blanks = 0;
+			for (int i = 0; i < dealt; i++)
+			{
+				if (bag[i] == LeaveTable.BLANK)
+					blanks++;
+				else
+					letters[bag[i]]++;
+			}
+
+			Move reply = generator.findBestMove(letters, blanks);
+			if (reply == null)
+				return move.getValue();
+			return move.getValue() - reply.getValue();
+		}
+	}
+}
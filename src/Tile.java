@@ -4,8 +4,6 @@ import java.awt.Point;
 import java.awt.Rectangle;
 import java.util.Comparator;
 
-import javax.swing.ImageIcon;
-
 /**
  * Keeps track of a Scrabble tile and models tile behaviour
  * 
@@ -30,19 +28,11 @@ public class Tile extends Rectangle implements Comparable<Tile>
 	public static final Comparator<Tile> ROW_ORDER = new RowOrder();
 	public static final Comparator<Tile> COL_ORDER = new ColOrder();
 
-	// the image for the tile
-	private final static Image smallSize = new ImageIcon(
-			"images\\Blank_S_Tile.jpg").getImage();
-	public final static int WIDTH_SMALL = smallSize.getWidth(null);
-	public final static int HEIGHT_SMALL = smallSize.getHeight(null);
-
-	private final static Image bigSize = new ImageIcon("images\\Blank_Tile.jpg")
-			.getImage();
-	public final static int WIDTH = bigSize.getWidth(null);
-	public final static int HEIGHT = bigSize.getHeight(null);
-
-	protected Image bigTile;
-	protected Image littleTile;
+	// the sizes of the tile images
+	public final static int WIDTH_SMALL = 29;
+	public final static int HEIGHT_SMALL = 32;
+	public final static int WIDTH = 64;
+	public final static int HEIGHT = 70;
 
 	// the values of the letters in Scrabble
 	protected static final int[] LETTER_VALUES = { 1, 3, 3, 2, 1, 4, 2, 4, 1,
@@ -68,14 +58,6 @@ public class Tile extends Rectangle implements Comparable<Tile>
 		{
 			isSet = false;
 			score = 0;
-
-			// Load up the appropriate large image file for this tile
-			String imageFileName = "images\\Blank_Tile.jpg";
-			bigTile = new ImageIcon(imageFileName).getImage();
-
-			// Load up the appropriate small image file for this tile
-			imageFileName = "images\\Blank_S_Tile.jpg";
-			littleTile = new ImageIcon(imageFileName).getImage();
 		}
 
 		else
@@ -89,18 +71,10 @@ public class Tile extends Rectangle implements Comparable<Tile>
 				scoreIndex = 0;
 
 			score = LETTER_VALUES[scoreIndex];
-
-			// Load up the appropriate large image file for this tile
-			String imageFileName = "images\\" + letter + "_Tile.jpg";
-			bigTile = new ImageIcon(imageFileName).getImage();
-
-			// Load up the appropriate small image file for this tile
-			imageFileName = "images\\" + letter + "_S_Tile.jpg";
-			littleTile = new ImageIcon(imageFileName).getImage();
 		}
 
 		// Set the size of the tile based on the image size
-		setSize(bigSize.getWidth(null), bigSize.getHeight(null));
+		setSize(WIDTH, HEIGHT);
 	}
 
 	/**
@@ -130,18 +104,25 @@ public class Tile extends Rectangle implements Comparable<Tile>
 	 */
 	public void draw(Graphics g)
 	{
-		// Draw the small version of the tile
-		if (isShrinked)
-		{
-			g.drawImage(littleTile, x, y, null);
-
-			// Draw a little 0 in the bottom corner if blank
-		}
-
-		// Draw the large version of the tile
-		else
-			g.drawImage(bigTile, x, y, null);
+		draw(g, x, y, isShrinked);
+	}
 
+	/**
+	 * Draws a Tile somewhere other than its location, such as on its way
+	 * there
+	 * 
+	 * @param g Graphics to draw the card in
+	 * @param atX the x-coordinate to draw the Tile at
+	 * @param atY the y-coordinate to draw the Tile at
+	 * @param small whether to draw the small image of the Tile
+	 */
+	public void draw(Graphics g, int atX, int atY, boolean small)
+	{
+		// The images are shared by every tile with the same face, and only
+		// loaded the first time one is drawn so that tiles can be used
+		// without a screen
+		Image image = TileImages.get(letter, score == 0, small);
+		g.drawImage(image, atX, atY, null);
 	}
 
 	/**
@@ -189,6 +170,14 @@ public class Tile extends Rectangle implements Comparable<Tile>
 		isPlayed = true;
 	}
 
+	/**
+	 * Unlocks a Tile so that it can be played again
+	 */
+	public void unlock()
+	{
+		isPlayed = false;
+	}
+
 	/**
 	 * Returns whether the tile has already been played (is locked in)
 	 */
@@ -208,7 +197,7 @@ public class Tile extends Rectangle implements Comparable<Tile>
 		if (size == SMALL_TILE && !isShrinked)
 		{
 			isShrinked = true;
-			setSize(littleTile.getWidth(null), littleTile.getHeight(null));
+			setSize(WIDTH_SMALL, HEIGHT_SMALL);
 			return true;
 		}
 
@@ -216,7 +205,7 @@ public class Tile extends Rectangle implements Comparable<Tile>
 		else if (size == LARGE_TILE && isShrinked)
 		{
 			isShrinked = false;
-			setSize(bigTile.getWidth(null), bigTile.getHeight(null));
+			setSize(WIDTH, HEIGHT);
 			return true;
 		}
 
@@ -384,14 +373,6 @@ public class Tile extends Rectangle implements Comparable<Tile>
 		this.letter = letter;
 
 		isSet = true;
-
-		// Reloads the image of the tile
-		String imageFileName = "images\\" + letter + "_Tile.jpg";
-		bigTile = new ImageIcon(imageFileName).getImage();
-
-		// Load up the appropriate small image file for this tile
-		imageFileName = "images\\" + letter + "_0_Tile.jpg";
-		littleTile = new ImageIcon(imageFileName).getImage();
 	}
 
 	/**
@@ -401,14 +382,6 @@ public class Tile extends Rectangle implements Comparable<Tile>
 	{
 		letter = ' ';
 		isSet = false;
-
-		// Load up the appropriate large image file for this tile
-		String imageFileName = "images\\Blank_Tile.jpg";
-		bigTile = new ImageIcon(imageFileName).getImage();
-
-		// Load up the appropriate small image file for this tile
-		imageFileName = "images\\Blank_S_Tile.jpg";
-		littleTile = new ImageIcon(imageFileName).getImage();
 	}
 
 	public boolean isSameChar(Tile other)
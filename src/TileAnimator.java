@@ -0,0 +1,234 @@
+import java.awt.Graphics;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.ArrayList;
+
+import javax.swing.JComponent;
+import javax.swing.Timer;
+
+/**
+ * Animates tiles sliding to new places on the screen. A tile is put in its
+ * new place straight away, so the rest of the game always sees where it will
+ * end up, and only the way it is drawn slides there over time. A timer moves
+ * every sliding tile on each frame, so any number of tiles can slide at once
+ * without holding up the rest of the program
+ * 
+ */
+public class TileAnimator implements ActionListener
+{
+	// How often the sliding tiles are moved (in milliseconds)
+	private static final int FRAME_DELAY = 15;
+
+	private JComponent area;
+	private ActionListener listener;
+	private Timer frameTimer;
+	private int duration;
+
+	// The tiles sliding, with where each started, where it was last drawn,
+	// when it started and the size it is drawn at until it gets there
+	private ArrayList<Tile> tiles;
+	private ArrayList<Point> starts;
+	private ArrayList<Rectangle> drawn;
+	private ArrayList<Long> startTimes;
+	private ArrayList<Boolean> small;
+
+	/**
+	 * Constructs an animator for the tiles drawn in an area of the screen
+	 * 
+	 * @param area the area the tiles are drawn in
+	 * @param duration how long a tile takes to slide (in milliseconds)
+	 * @param listener told each time tiles stop sliding, or null
+	 */
+	public TileAnimator(JComponent area, int duration, ActionListener listener)
+	{
+		this.area = area;
+		this.duration = duration;
+		this.listener = listener;
+		frameTimer = new Timer(FRAME_DELAY, this);
+
+		tiles = new ArrayList<Tile>();
+		starts = new ArrayList<Point>();
+		drawn = new ArrayList<Rectangle>();
+		startTimes = new ArrayList<Long>();
+		small = new ArrayList<Boolean>();
+	}
+
+	/**
+	 * Slides a tile from where it is to a new place. The tile is moved there
+	 * straight away. If it is already sliding it carries on from where it is
+	 * drawn now
+	 * 
+	 * @param tile the tile to move
+	 * @param finalPos the new place of the tile
+	 * @param finalSize the size of the tile once it gets there
+	 *            (Tile.SMALL_TILE or Tile.LARGE_TILE)
+	 */
+	public void move(Tile tile, Point finalPos, int finalSize)
+	{
+		Rectangle from = tile.getBounds();
+		boolean wasSmall = tile.isSmall();
+		int index = indexOf(tile);
+		if (index >= 0)
+		{
+			from = drawn.get(index);
+			wasSmall = small.get(index);
+			remove(index);
+		}
+
+		tile.setLocation(finalPos);
+		tile.changeSize(finalSize);
+
+		tiles.add(tile);
+		starts.add(from.getLocation());
+		drawn.add(from);
+		startTimes.add(System.nanoTime());
+		small.add(wasSmall);
+
+		if (!frameTimer.isRunning())
+			frameTimer.start();
+	}
+
+	/**
+	 * Checks if a tile is still sliding
+	 * 
+	 * @param tile the tile to check
+	 * @return true if the tile is sliding, false if not
+	 */
+	public boolean isMoving(Tile tile)
+	{
+		return indexOf(tile) >= 0;
+	}
+
+	/**
+	 * Stops a tile sliding, leaving it in its new place
+	 * 
+	 * @param tile the tile to stop
+	 */
+	public void finish(Tile tile)
+	{
+		int index = indexOf(tile);
+		if (index < 0)
+			return;
+
+		area.repaint(drawn.get(index).union(tile));
+		remove(index);
+		stopped();
+	}
+
+	/**
+	 * Stops every tile sliding, leaving them all in their new places
+	 */
+	public void finishAll()
+	{
+		if (tiles.isEmpty())
+			return;
+
+		for (int index = 0; index < tiles.size(); index++)
+			area.repaint(drawn.get(index).union(tiles.get(index)));
+		tiles.clear();
+		starts.clear();
+		drawn.clear();
+		startTimes.clear();
+		small.clear();
+		stopped();
+	}
+
+	/**
+	 * Draws the sliding tiles where they are now
+	 * 
+	 * @param g the graphics context to draw in
+	 */
+	public void draw(Graphics g)
+	{
+		for (int index = 0; index < tiles.size(); index++)
+		{
+			Rectangle at = drawn.get(index);
+			tiles.get(index).draw(g, at.x, at.y, small.get(index));
+		}
+	}
+
+	/**
+	 * Moves the sliding tiles on to where they should be by now, and stops
+	 * the ones that have got there
+	 * 
+	 * @param event the event from the frame timer
+	 */
+	public void actionPerformed(ActionEvent event)
+	{
+		long now = System.nanoTime();
+		boolean arrived = false;
+		int index = 0;
+		while (index < tiles.size())
+		{
+			Tile tile = tiles.get(index);
+			Rectangle before = drawn.get(index);
+			double done = (now - startTimes.get(index)) / 1e6 / duration;
+
+			if (done >= 1)
+			{
+				// Clear up where the tile was and draw it in its place
+				area.repaint(before.union(tile));
+				remove(index);
+				arrived = true;
+			}
+			else
+			{
+				// Only draw again where the tile was and where it is now
+				Point start = starts.get(index);
+				Rectangle after = new Rectangle(before);
+				after.setLocation(start.x + (int) ((tile.x - start.x) * done),
+						start.y + (int) ((tile.y - start.y) * done));
+				drawn.set(index, after);
+				area.repaint(before.union(after));
+				index++;
+			}
+		}
+
+		if (arrived)
+			stopped();
+	}
+
+	/**
+	 * Finds a tile in the sliding tiles. Tiles are Rectangles, so two tiles
+	 * in the same place are equal, and only the same tile should be found
+	 * 
+	 * @param tile the tile to find
+	 * @return the index of the tile, or -1 if it isn't sliding
+	 */
+	private int indexOf(Tile tile)
+	{
+		for (int index = 0; index < tiles.size(); index++)
+			if (tiles.get(index) == tile)
+				return index;
+		return -1;
+	}
+
+	/**
+	 * Forgets a sliding tile
+	 * 
+	 * @param index the index of the tile in the sliding tiles
+	 */
+	private void remove(int index)
+	{
+		tiles.remove(index);
+		starts.remove(index);
+		drawn.remove(index);
+		startTimes.remove(index);
+		small.remove(index);
+	}
+
+	/**
+	 * Lets the listener know that tiles have stopped sliding, and stops the
+	 * timer once none are left
+	 */
+	private void stopped()
+	{
+		if (tiles.isEmpty())
+			frameTimer.stop();
+		if (listener != null)
+			listener.actionPerformed(new ActionEvent(this,
+					ActionEvent.ACTION_PERFORMED, "stopped"));
+	}
+}
@@ -0,0 +1,103 @@
+import java.awt.Image;
+
+import javax.swing.ImageIcon;
+
+/**
+ * The images of the tiles, shared by every tile. Each image is decoded the
+ * first time it is asked for and kept, so a letter's image is only ever
+ * decoded once however many tiles have that letter. The images can also be
+ * decoded ahead of time on a background thread so that they are ready by the
+ * time the first tiles are drawn
+ * 
+ */
+public class TileImages
+{
+	// The letters A to Z are 0 to 25 and a blank that hasn't been set is 26
+	private static final int BLANK = 26;
+	private static final int NO_OF_FACES = 27;
+
+	// The large and small images of each face, and the small images of a
+	// blank set to each letter (which show a 0)
+	private static final Image[] BIG = new Image[NO_OF_FACES];
+	private static final Image[] SMALL = new Image[NO_OF_FACES];
+	private static final Image[] ZERO = new Image[NO_OF_FACES];
+
+	/**
+	 * Returns the image to draw for a tile
+	 * 
+	 * @param letter the letter on the tile, a space for a blank that hasn't
+	 *            been set
+	 * @param blank whether the tile is a blank
+	 * @param small whether the small image is wanted
+	 * @return the image
+	 */
+	public static synchronized Image get(char letter, boolean blank,
+			boolean small)
+	{
+		int face = BLANK;
+		if (letter >= 'A' && letter <= 'Z')
+			face = letter - 'A';
+
+		String name;
+		if (face == BLANK)
+			name = "Blank";
+		else
+			name = "" + letter;
+
+		if (!small)
+		{
+			if (BIG[face] == null)
+				BIG[face] = load(name + "_Tile.jpg");
+			return BIG[face];
+		}
+
+		// Blanks set to a letter show a 0 on the small image
+		if (blank && face != BLANK)
+		{
+			if (ZERO[face] == null)
+				ZERO[face] = load(name + "_0_Tile.jpg");
+			return ZERO[face];
+		}
+
+		if (SMALL[face] == null)
+			SMALL[face] = load(name + "_S_Tile.jpg");
+		return SMALL[face];
+	}
+
+	/**
+	 * Starts decoding the large and small image of every face on a
+	 * background thread. Tiles drawn before it finishes decode their own
+	 * images as usual
+	 */
+	public static void preload()
+	{
+		Thread loader = new Thread("Tile image loader")
+		{
+			public void run()
+			{
+				for (int face = 0; face < NO_OF_FACES; face++)
+				{
+					char letter = ' ';
+					if (face != BLANK)
+						letter = (char) ('A' + face);
+					get(letter, false, false);
+					get(letter, false, true);
+				}
+			}
+		};
+		loader.setDaemon(true);
+		loader.setPriority(Thread.MIN_PRIORITY);
+		loader.start();
+	}
+
+	/**
+	 * Decodes an image from the images folder, waiting until it is ready
+	 * 
+	 * @param fileName the name of the image file
+	 * @return the image
+	 */
+	private static Image load(String fileName)
+	{
+		return new ImageIcon("images\\" + fileName).getImage();
+	}
+}
@@ -0,0 +1,249 @@
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Plays many headless games between two kinds of computer player in parallel
+ * on every core and reports how each kind did. Every game deals from a pile
+ * shuffled with its own seed, so a tournament with the same seed always plays
+ * the same games. The two kinds swap seats every game so neither always gets
+ * the first move
+ * 
+ * java Tournament [games] [seed] [first type] [second type] [time budget]
+ * [endgame nodes]
+ * 
+ */
+public class Tournament
+{
+	// Split the games up until each task has at most this many
+	private static final int GAMES_PER_TASK = 4;
+
+	private int firstType;
+	private int secondType;
+	private long seed;
+	private int timeBudget;
+	private int endgameLimit;
+
+	/**
+	 * Sets up a tournament between two kinds of computer player
+	 * 
+	 * @param firstType the difficulty of the first player (easy/hard)
+	 * @param secondType the difficulty of the second player (easy/hard)
+	 * @param seed the seed used to shuffle the pile of each game
+	 */
+	public Tournament(int firstType, int secondType, long seed)
+	{
+		this.firstType = firstType;
+		this.secondType = secondType;
+		this.seed = seed;
+	}
+
+	/**
+	 * Sets how long a hard or simulating computer player may take over each
+	 * move
+	 * 
+	 * @param millis the time budget in milliseconds, 0 for no limit
+	 */
+	public void setTimeBudget(int millis)
+	{
+		timeBudget = millis;
+	}
+
+	/**
+	 * Sets the most positions the endgame search of a hard or simulating
+	 * computer player may look at for each move. The search is off unless
+	 * this is set
+	 * 
+	 * @param nodes the node limit, 0 to turn the endgame search off
+	 */
+	public void setEndgameLimit(int nodes)
+	{
+		endgameLimit = nodes;
+	}
+
+	/**
+	 * Plays a number of games on a pool of threads
+	 * 
+	 * @param noOfGames the number of games to play
+	 * @param pool the pool to play the games on
+	 * @return the combined results of the games
+	 */
+	public Results play(int noOfGames, ForkJoinPool pool)
+	{
+		long startTime = System.nanoTime();
+		Results results = pool.invoke(new GameTask(0, noOfGames));
+		results.seconds = (System.nanoTime() - startTime) / 1e9;
+		return results;
+	}
+
+	/**
+	 * Plays a single game
+	 * 
+	 * @param gameNo the number of the game, used to pick its seed and seats
+	 * @return the results of the game
+	 */
+	private Results playGame(int gameNo)
+	{
+		Pile deck = new Pile();
+		deck.shuffle(new Random(seed + gameNo));
+
+		// Swap seats every other game
+		boolean swapped = (gameNo % 2 == 1);
+		HeadlessGame game;
+		if (swapped)
+			game = new HeadlessGame(secondType, firstType, deck);
+		else
+			game = new HeadlessGame(firstType, secondType, deck);
+		game.getPlayerOne().setTimeBudget(timeBudget);
+		game.getPlayerTwo().setTimeBudget(timeBudget);
+		game.setEndgameLimit(endgameLimit);
+		game.play();
+
+		Player first = swapped ? game.getPlayerTwo() : game.getPlayerOne();
+		Player second = swapped ? game.getPlayerOne() : game.getPlayerTwo();
+
+		Results results = new Results();
+		results.noOfGames = 1;
+		results.firstScore = first.getScore();
+		results.secondScore = second.getScore();
+		if (first.getScore() > second.getScore())
+			results.firstWins = 1;
+		else if (second.getScore() > first.getScore())
+			results.secondWins = 1;
+		else
+			results.ties = 1;
+		results.noOfMoves = game.getNoOfMoves();
+		return results;
+	}
+
+	/**
+	 * A task that plays a range of games, splitting the range in half until
+	 * it is small enough to play directly
+	 */
+	private class GameTask extends RecursiveTask<Results>
+	{
+		private static final long serialVersionUID = 1L;
+
+		private int firstGame;
+		private int lastGame;
+
+		public GameTask(int firstGame, int lastGame)
+		{
+			this.firstGame = firstGame;
+			this.lastGame = lastGame;
+		}
+
+		protected Results compute()
+		{
+			if (lastGame - firstGame <= GAMES_PER_TASK)
+			{
+				Results results = new Results();
+				for (int game = firstGame; game < lastGame; game++)
+					results.add(playGame(game));
+				return results;
+			}
+
+			int middle = (firstGame + lastGame) / 2;
+			GameTask left = new GameTask(firstGame, middle);
+			left.fork();
+			Results results = new GameTask(middle, lastGame).compute();
+			results.add(left.join());
+			return results;
+		}
+	}
+
+	/**
+	 * The totals of a number of games
+	 */
+	public static class Results
+	{
+		int noOfGames;
+		int firstWins;
+		int secondWins;
+		int ties;
+		long firstScore;
+		long secondScore;
+		long noOfMoves;
+		double seconds;
+
+		/**
+		 * Adds the totals of other games to these totals
+		 * 
+		 * @param other the results to add
+		 */
+		void add(Results other)
+		{
+			noOfGames += other.noOfGames;
+			firstWins += other.firstWins;
+			secondWins += other.secondWins;
+			ties += other.ties;
+			firstScore += other.firstScore;
+			secondScore += other.secondScore;
+			noOfMoves += other.noOfMoves;
+		}
+
+		/**
+		 * Returns the results as a few lines of text
+		 * 
+		 * @return a summary of the results
+		 */
+		public String toString()
+		{
+			StringBuilder summary = new StringBuilder();
+			summary.append(String.format("Games: %d in %.1f s (%.0f games per "
+					+ "minute, %.0f moves per second)%n", noOfGames, seconds,
+					noOfGames * 60 / seconds, noOfMoves / seconds));
+			summary.append(String.format("First:  %5.1f%% wins, average "
+					+ "score %.1f%n", 100.0 * firstWins / noOfGames,
+					(double) firstScore / noOfGames));
+			summary.append(String.format("Second: %5.1f%% wins, average "
+					+ "score %.1f%n", 100.0 * secondWins / noOfGames,
+					(double) secondScore / noOfGames));
+			summary.append(String.format("Ties:   %5.1f%%", 100.0 * ties
+					/ noOfGames));
+			return summary.toString();
+		}
+	}
+
+	/**
+	 * Plays a tournament and prints the results
+	 * 
+	 * @param args the number of games, the seed, the two player types (1
+	 *            easy, 2 hard, 3 simulating), the time budget of hard and
+	 *            simulating players in milliseconds and their endgame node
+	 *            limit (all optional, defaulting to 1000 games of easy
+	 *            against hard with no time budget and no endgame search)
+	 */
+	public static void main(String[] args)
+	{
+		int noOfGames = 1000;
+		long seed = 0;
+		int firstType = Player.EASY_COMPUTER;
+		int secondType = Player.HARD_COMPUTER;
+
+		if (args.length > 0)
+			noOfGames = Integer.parseInt(args[0]);
+		if (args.length > 1)
+			seed = Long.parseLong(args[1]);
+		if (args.length > 3)
+		{
+			firstType = Integer.parseInt(args[2]);
+			secondType = Integer.parseInt(args[3]);
+		}
+		int timeBudget = 0;
+		if (args.length > 4)
+			timeBudget = Integer.parseInt(args[4]);
+		int endgameLimit = 0;
+		if (args.length > 5)
+			endgameLimit = Integer.parseInt(args[5]);
+
+		ForkJoinPool pool = new ForkJoinPool();
+		Tournament tournament = new Tournament(firstType, secondType, seed);
+		tournament.setTimeBudget(timeBudget);
+		tournament.setEndgameLimit(endgameLimit);
+		System.out.println("Playing " + noOfGames + " games on "
+				+ pool.getParallelism() + " threads");
+		System.out.println(tournament.play(noOfGames, pool));
+		pool.shutdown();
+	}
+}
@@ -1,7 +1,5 @@
 import java.util.ArrayList;
 
-import javax.swing.JFrame;
-
 /**
  * Creates a reference to a row of tiles on the board called a Word which may or
  * may not be in the dictionary. Used to keep track of each individual tile in
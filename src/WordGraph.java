@@ -0,0 +1,337 @@
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A letter graph (trie) of all the words in the Scrabble dictionary. Each node
+ * stores a mask of the letters that can follow it and whether the path to it
+ * spells a word, so the move generator can walk the graph one letter at a time
+ * instead of checking whole strings. A graph can be built from a word list or
+ * loaded from a file written by DictionaryCompiler, in which case it is read
+ * straight out of the memory-mapped file. A graph never changes once it is
+ * built, so it can be read by any number of threads at the same time
+ * 
+ */
+public class WordGraph
+{
+	public static final int ROOT = 0;
+	public static final int NONE = -1;
+
+	// The header of a compiled graph file
+	private static final int MAGIC = 0x44415747;
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 12;
+
+	// The bit in a node marking the end of a word
+	private static final int TERMINAL = 1 << 26;
+	private static final int LETTER_MASK = TERMINAL - 1;
+
+	// Two ints per node: the letters leading out of it with the terminal
+	// flag, and the index of its first child. The children of a node are
+	// stored next to each other in alphabetical order
+	private final IntBuffer graph;
+
+	private final int noOfNodes;
+
+	/**
+	 * Constructs a graph of the given words
+	 * 
+	 * @param words the words to store, sorted alphabetically and in lower case
+	 */
+	public WordGraph(ArrayList<String> words)
+	{
+		int capacity = Math.max(words.size(), 1);
+		int[] nodes = new int[capacity];
+		int[] children = new int[capacity];
+
+		// For each node, the range of words sharing its prefix and the length
+		// of the prefix, used while building the graph
+		int[] firstWord = new int[capacity];
+		int[] lastWord = new int[capacity];
+		int[] depth = new int[capacity];
+
+		// Start with the root holding every word
+		int count = 1;
+		firstWord[ROOT] = 0;
+		lastWord[ROOT] = words.size();
+		depth[ROOT] = 0;
+
+		// Build the graph one level at a time so that the children of each
+		// node end up next to each other
+		for (int node = 0; node < count; node++)
+		{
+			int index = firstWord[node];
+			int end = lastWord[node];
+			int length = depth[node];
+
+			// The word equal to the prefix comes first in sorted order
+			if (index < end && words.get(index).length() == length)
+			{
+				nodes[node] |= TERMINAL;
+				index++;
+			}
+
+			children[node] = count;
+
+			// Group the remaining words by their next letter
+			while (index < end)
+			{
+				char letter = words.get(index).charAt(length);
+				int groupEnd = index + 1;
+				while (groupEnd < end
+						&& words.get(groupEnd).charAt(length) == letter)
+					groupEnd++;
+
+				// Make room for the new child if needed
+				if (count == nodes.length)
+				{
+					int newSize = nodes.length * 2;
+					nodes = Arrays.copyOf(nodes, newSize);
+					children = Arrays.copyOf(children, newSize);
+					firstWord = Arrays.copyOf(firstWord, newSize);
+					lastWord = Arrays.copyOf(lastWord, newSize);
+					depth = Arrays.copyOf(depth, newSize);
+				}
+
+				nodes[node] |= 1 << (letter - 'a');
+				firstWord[count] = index;
+				lastWord[count] = groupEnd;
+				depth[count] = length + 1;
+				count++;
+
+				index = groupEnd;
+			}
+		}
+
+		// Store the nodes in pairs
+		int[] pairs = new int[count * 2];
+		for (int node = 0; node < count; node++)
+		{
+			pairs[node * 2] = nodes[node];
+			pairs[node * 2 + 1] = children[node];
+		}
+		graph = IntBuffer.wrap(pairs);
+		noOfNodes = count;
+	}
+
+	/**
+	 * Constructs a graph from nodes stored in pairs (the letter mask with the
+	 * terminal flag, then the index of the first child)
+	 * 
+	 * @param graph the nodes of the graph
+	 */
+	private WordGraph(IntBuffer graph)
+	{
+		this.graph = graph;
+		noOfNodes = graph.capacity() / 2;
+	}
+
+	/**
+	 * Constructs a graph from the raw values of its nodes
+	 * 
+	 * @param edges the letter mask of each node
+	 * @param terminal whether each node ends a word
+	 * @param children the index of the first child of each node
+	 * @param noOfNodes the number of nodes
+	 * @return the graph
+	 */
+	static WordGraph fromNodes(int[] edges, boolean[] terminal,
+			int[] children, int noOfNodes)
+	{
+		int[] pairs = new int[noOfNodes * 2];
+		for (int node = 0; node < noOfNodes; node++)
+		{
+			pairs[node * 2] = edges[node] | (terminal[node] ? TERMINAL : 0);
+			pairs[node * 2 + 1] = children[node];
+		}
+		return new WordGraph(IntBuffer.wrap(pairs));
+	}
+
+	/**
+	 * Maps a compiled graph file into memory. The nodes are read straight out
+	 * of the file so the graph takes up no space on the heap
+	 * 
+	 * @param fileName the name of the compiled graph file
+	 * @return the graph stored in the file
+	 * @throws IOException if the file could not be read or is not a compiled
+	 *             graph
+	 */
+	public static WordGraph load(String fileName) throws IOException
+	{
+		RandomAccessFile file = new RandomAccessFile(fileName, "r");
+		try
+		{
+			FileChannel channel = file.getChannel();
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+					channel.size());
+
+			// Check the header before trusting the rest of the file
+			if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC
+					|| buffer.getInt(4) != VERSION)
+				throw new IOException(fileName + " is not a compiled word graph");
+
+			int nodeCount = buffer.getInt(8);
+			if (buffer.capacity() != HEADER_SIZE + nodeCount * 8)
+				throw new IOException(fileName + " is the wrong size");
+
+			buffer.position(HEADER_SIZE);
+			return new WordGraph(buffer.slice().asIntBuffer());
+		}
+		finally
+		{
+			// The mapping stays valid after the file is closed
+			file.close();
+		}
+	}
+
+	/**
+	 * Writes this graph in the compiled file format
+	 * 
+	 * @param out the stream to write to
+	 * @throws IOException if the graph could not be written
+	 */
+	public void write(DataOutputStream out) throws IOException
+	{
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(noOfNodes);
+		for (int i = 0; i < noOfNodes * 2; i++)
+			out.writeInt(graph.get(i));
+	}
+
+	/**
+	 * Reads a sorted word list, one word per line, into a graph
+	 * 
+	 * @param fileName the name of the word list file
+	 * @return the graph of the words in the file
+	 * @throws IOException if the file could not be read
+	 */
+	public static WordGraph fromWordList(String fileName) throws IOException
+	{
+		ArrayList<String> words = new ArrayList<String>();
+		BufferedReader reader = new BufferedReader(new FileReader(fileName));
+		try
+		{
+			String nextWord = reader.readLine();
+			while (nextWord != null)
+			{
+				nextWord = nextWord.trim();
+				if (nextWord.length() > 0)
+					words.add(nextWord.toLowerCase());
+				nextWord = reader.readLine();
+			}
+		}
+		finally
+		{
+			reader.close();
+		}
+		return new WordGraph(words);
+	}
+
+	/**
+	 * Returns the node reached by following a letter out of a node
+	 * 
+	 * @param node the node to start from
+	 * @param letter the letter to follow (0 for A to 25 for Z)
+	 * @return the child node, or NONE if no word continues with this letter
+	 */
+	public int getChild(int node, int letter)
+	{
+		int edges = graph.get(node * 2);
+		int bit = 1 << letter;
+		if ((edges & bit) == 0)
+			return NONE;
+
+		// Children are stored in alphabetical order, so count the letters
+		// before this one to find it
+		return graph.get(node * 2 + 1) + Integer.bitCount(edges & (bit - 1));
+	}
+
+	/**
+	 * Returns the letters that can follow a node as a bit mask (bit 0 for A
+	 * to bit 25 for Z)
+	 * 
+	 * @param node the node to check
+	 * @return the mask of letters leading out of the node
+	 */
+	public int getEdges(int node)
+	{
+		return graph.get(node * 2) & LETTER_MASK;
+	}
+
+	/**
+	 * Checks if the path to a node spells a word
+	 * 
+	 * @param node the node to check
+	 * @return true if the node ends a word, false if not
+	 */
+	public boolean isTerminal(int node)
+	{
+		return (graph.get(node * 2) & TERMINAL) != 0;
+	}
+
+	/**
+	 * Follows every letter of a word from a given node
+	 * 
+	 * @param node the node to start from
+	 * @param word the letters to follow, in upper or lower case
+	 * @return the node reached, or NONE if the letters do not lead anywhere
+	 */
+	public int follow(int node, CharSequence word)
+	{
+		for (int i = 0; i < word.length() && node != NONE; i++)
+			node = follow(node, word.charAt(i));
+		return node;
+	}
+
+	/**
+	 * Follows part of an array of letters from a given node
+	 * 
+	 * @param node the node to start from
+	 * @param letters the letters, in upper or lower case
+	 * @param offset the index of the first letter to follow
+	 * @param length the number of letters to follow
+	 * @return the node reached, or NONE if the letters do not lead anywhere
+	 */
+	public int follow(int node, char[] letters, int offset, int length)
+	{
+		for (int i = offset; i < offset + length && node != NONE; i++)
+			node = follow(node, letters[i]);
+		return node;
+	}
+
+	/**
+	 * Follows a single letter from a given node
+	 * 
+	 * @param node the node to start from
+	 * @param letter the letter, in upper or lower case
+	 * @return the node reached, or NONE if the letter does not lead anywhere
+	 */
+	public int follow(int node, char letter)
+	{
+		int index = letter - 'a';
+		if (letter <= 'Z')
+			index = letter - 'A';
+
+		if (node == NONE || index < 0 || index >= 26)
+			return NONE;
+		return getChild(node, index);
+	}
+
+	/**
+	 * Returns the number of nodes in the graph
+	 * 
+	 * @return the number of nodes
+	 */
+	public int size()
+	{
+		return noOfNodes;
+	}
+}
@@ -0,0 +1,96 @@
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Random keys for hashing board positions and racks. The hash of a board is
+ * the exclusive or of the keys of the letters on its squares, so it can be
+ * kept up to date as tiles are placed and removed without looking at the
+ * rest of the board. The hash of a rack is worked out the same way from the
+ * number of each letter on it, so the order of the tiles does not matter
+ * 
+ */
+public class Zobrist
+{
+	private static final int NO_OF_SQUARES = 15 * 15;
+	private static final int NO_OF_LETTERS = 26;
+	private static final int BLANK = 26;
+
+	// The most copies of one letter a rack can hold
+	private static final int MAX_COPIES = 8;
+
+	// The keys are always the same so hashes can be compared between runs
+	private static final long SEED = 0x5CAB81E5L;
+
+	// A key for each letter on each square, as a normal tile or a blank
+	private static final long[] SQUARE_KEYS = new long[NO_OF_SQUARES
+			* NO_OF_LETTERS * 2];
+
+	// A key for each copy of each letter (or blank) on a rack
+	private static final long[] RACK_KEYS = new long[(NO_OF_LETTERS + 1)
+			* MAX_COPIES];
+
+	static
+	{
+		Random random = new Random(SEED);
+		for (int key = 0; key < SQUARE_KEYS.length; key++)
+			SQUARE_KEYS[key] = random.nextLong();
+		for (int key = 0; key < RACK_KEYS.length; key++)
+			RACK_KEYS[key] = random.nextLong();
+	}
+
+	/**
+	 * Returns the key of a letter on a square
+	 * 
+	 * @param square the index of the square (row * 15 + column)
+	 * @param letter the index of the letter (0 for A to 25 for Z)
+	 * @param blank whether the letter is on a blank tile
+	 * @return the key to add to or take from the board hash
+	 */
+	public static long squareKey(int square, int letter, boolean blank)
+	{
+		int key = (square * NO_OF_LETTERS + letter) * 2;
+		if (blank)
+			key++;
+		return SQUARE_KEYS[key];
+	}
+
+	/**
+	 * Returns the hash of the tiles on a rack
+	 * 
+	 * @param rack the tiles on the rack
+	 * @return the hash of the rack
+	 */
+	public static long rackHash(ArrayList<Tile> rack)
+	{
+		int[] letters = new int[NO_OF_LETTERS];
+		int blanks = 0;
+		for (Tile tile : rack)
+		{
+			if (tile.isBlank())
+				blanks++;
+			else
+				letters[tile.getChar() - 'A']++;
+		}
+		return rackHash(letters, blanks);
+	}
+
+	/**
+	 * Returns the hash of a rack given as the number of each letter
+	 * 
+	 * @param letters the number of each letter A to Z on the rack
+	 * @param blanks the number of blanks on the rack
+	 * @return the hash of the rack
+	 */
+	public static long rackHash(int[] letters, int blanks)
+	{
+		long hash = 0;
+		for (int letter = 0; letter < NO_OF_LETTERS; letter++)
+			for (int copy = 0; copy < letters[letter]; copy++)
+				hash ^= RACK_KEYS[letter * MAX_COPIES
+						+ Math.min(copy, MAX_COPIES - 1)];
+		for (int copy = 0; copy < blanks; copy++)
+			hash ^= RACK_KEYS[BLANK * MAX_COPIES
+					+ Math.min(copy, MAX_COPIES - 1)];
+		return hash;
+	}
+}